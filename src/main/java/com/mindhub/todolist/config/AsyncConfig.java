@@ -0,0 +1,96 @@
+package com.mindhub.todolist.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Bulkheads: the heavy admin operations run in their own bounded pool,
+// so they can't take the threads of Tomcat nor all the connections of the db from the users
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+    // also the connections that the admin operations can use at the same time (less than the pool of Hikari)
+    @Value("${todolist.admin.executor.threads:4}")
+    private int adminThreads;
+
+    // a full queue rejects the operation (503)
+    @Value("${todolist.admin.executor.queue-capacity:20}")
+    private int adminQueueCapacity;
+
+    // threads for the Callable/StreamingResponseBody of Spring MVC
+    @Value("${todolist.mvc.async.threads:8}")
+    private int mvcAsyncThreads;
+
+    @Value("${todolist.mvc.async.queue-capacity:100}")
+    private int mvcAsyncQueueCapacity;
+
+    // reads of a batch (/api/batch) in parallel: also the connections that they can use at the same time (OSIV keeps one by read)
+    // the rest of the reads of a batch run in its own thread, with its connection
+    @Value("${todolist.batch.threads:2}")
+    private int batchThreads;
+
+    // ms, then 503 (AsyncRequestTimeoutException)
+    @Value("${todolist.mvc.async.timeout:60000}")
+    private long asyncTimeout;
+
+    @Bean(name = "adminExecutor")
+    public ThreadPoolTaskExecutor adminExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(adminThreads);
+        executor.setMaxPoolSize(adminThreads);
+        executor.setQueueCapacity(adminQueueCapacity);
+        executor.setThreadNamePrefix("admin-");
+        // the tasks of the pool use the same budget as the streams: waits for a free permit
+        Semaphore permits = adminPermits();
+        executor.setTaskDecorator(task -> () -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+        return executor;
+    }
+
+    // connections of the admin at the same time: the pool and the streams of the listings (StreamingArrayWriter)
+    // the streams run in the threads of Spring MVC, without a permit they are rejected (503)
+    @Bean(name = "adminPermits")
+    public Semaphore adminPermits() {
+        return new Semaphore(adminThreads);
+    }
+
+    @Bean(name = "mvcAsyncExecutor")
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mvcAsyncThreads);
+        executor.setMaxPoolSize(mvcAsyncThreads);
+        executor.setQueueCapacity(mvcAsyncQueueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        return executor;
+    }
+
+    // without queue: when all the threads are busy the thread of the batch runs the read itself (slower, never rejected)
+    @Bean(name = "batchExecutor")
+    public ThreadPoolTaskExecutor batchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(batchThreads);
+        executor.setMaxPoolSize(batchThreads);
+        executor.setQueueCapacity(0);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("batch-");
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+        configurer.setDefaultTimeout(asyncTimeout);
+    }
+}
@@ -0,0 +1,171 @@
+package com.mindhub.todolist.config;
+
+import com.mindhub.todolist.utils.AdaptiveConcurrencyLimiter;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Load shedding: caps the requests in flight with an adaptive limit by group
+// (the user reads, the admin routes and the rest) and rejects the excess with 503
+// instead of queuing it in the threads of Tomcat and the connections of the db
+// Before the security: a rejected request doesn't parse the token nor read the user
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    @Value("${todolist.concurrency.enabled:true}")
+    private boolean enabled;
+
+    // cheap reads of the users (my-tasks, profile, changes)
+    @Value("${todolist.concurrency.user-read.initial-limit:50}")
+    private int userReadInitialLimit;
+
+    @Value("${todolist.concurrency.user-read.min-limit:10}")
+    private int userReadMinLimit;
+
+    @Value("${todolist.concurrency.user-read.max-limit:200}")
+    private int userReadMaxLimit;
+
+    // admin: listings of all the users and tasks
+    @Value("${todolist.concurrency.admin.initial-limit:4}")
+    private int adminInitialLimit;
+
+    @Value("${todolist.concurrency.admin.min-limit:1}")
+    private int adminMinLimit;
+
+    @Value("${todolist.concurrency.admin.max-limit:20}")
+    private int adminMaxLimit;
+
+    // writes of the users and auth
+    @Value("${todolist.concurrency.default.initial-limit:20}")
+    private int defaultInitialLimit;
+
+    @Value("${todolist.concurrency.default.min-limit:5}")
+    private int defaultMinLimit;
+
+    @Value("${todolist.concurrency.default.max-limit:100}")
+    private int defaultMaxLimit;
+
+    private AdaptiveConcurrencyLimiter userReadLimiter;
+    private AdaptiveConcurrencyLimiter adminLimiter;
+    private AdaptiveConcurrencyLimiter defaultLimiter;
+
+    @PostConstruct
+    public void init() {
+        userReadLimiter = new AdaptiveConcurrencyLimiter(userReadInitialLimit, userReadMinLimit, userReadMaxLimit);
+        adminLimiter = new AdaptiveConcurrencyLimiter(adminInitialLimit, adminMinLimit, adminMaxLimit);
+        defaultLimiter = new AdaptiveConcurrencyLimiter(defaultInitialLimit, defaultMinLimit, defaultMaxLimit);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdaptiveConcurrencyLimiter limiter = enabled ? limiterOf(request) : null;
+        if (limiter == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!limiter.tryAcquire()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"The server is busy, try again later\"}");
+            return;
+        }
+        long start = System.nanoTime();
+        // once: the end of the request and the end of its async processing can both arrive
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - start);
+            }
+        };
+        try {
+            // the listener is added when the async processing starts, before it can complete
+            chain.doFilter(new ReleasingRequest(request, release), response);
+        } finally {
+            // not async, or its processing already completed
+            if (!request.isAsyncStarted()) {
+                release.run();
+            }
+        }
+    }
+
+    private static class ReleasingRequest extends HttpServletRequestWrapper {
+        private final Runnable release;
+
+        ReleasingRequest(HttpServletRequest request, Runnable release) {
+            super(request);
+            this.release = release;
+        }
+
+        @Override
+        public AsyncContext startAsync() {
+            return listen(super.startAsync());
+        }
+
+        @Override
+        public AsyncContext startAsync(ServletRequest request, ServletResponse response) {
+            return listen(super.startAsync(request, response));
+        }
+
+        // the request ends when the async processing completes (also after a timeout or an error)
+        private AsyncContext listen(AsyncContext asyncContext) {
+            asyncContext.addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    release.run();
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                    // a new async cycle (in a later dispatch) doesn't keep the listeners of the previous one
+                    event.getAsyncContext().addListener(this);
+                }
+            });
+            return asyncContext;
+        }
+    }
+
+    private AdaptiveConcurrencyLimiter limiterOf(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        // the streams are open for minutes: they would take the slots of the others
+        // a batch: each of its sub-requests takes its own slot
+        if (!uri.startsWith("/api/") || uri.equals("/api/user/tasks/stream") || uri.equals("/api/batch")) {
+            return null;
+        }
+        if (uri.startsWith("/api/admin/")) {
+            return adminLimiter;
+        }
+        if (uri.startsWith("/api/user/") && "GET".equals(request.getMethod())) {
+            return userReadLimiter;
+        }
+        return defaultLimiter;
+    }
+}
@@ -25,7 +25,8 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
         // finds or not in the db
         // create the authentication - new=constructor - spring security validates the password with the password sent
-        return new User(userEntity.getEmail(), userEntity.getPassword(), AuthorityUtils.createAuthorityList
-                (userEntity.getRole().toString()));
+        // disabled users (deletion scheduled) can't login and their tokens are rejected
+        return new User(userEntity.getEmail(), userEntity.getPassword(), userEntity.isEnabled(), true, true, true,
+                AuthorityUtils.createAuthorityList(userEntity.getRole().toString()));
     }
 }
@@ -0,0 +1,196 @@
+package com.mindhub.todolist.config;
+
+import com.mindhub.todolist.utils.BoundedLruMap;
+import com.mindhub.todolist.utils.CachedBodyRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+// Idempotency-Key of the creates: a retry (timeout of the client) gets the response of the first request
+// instead of creating the tasks again
+// The key is by user and route, with a fingerprint of the body: the same key with another body is rejected
+// The responses are kept in memory, bounded by their bytes (the results of a sync can be big)
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    // create own task, sync (bulk) and create of the admin
+    private static final Pattern ROUTES = Pattern.compile("^/api/user$|^/api/user/tasks/sync$|^/api/admin/tasks/user/\\d+$");
+
+    // estimated bytes of an entry without its key, fingerprint and body (the entry and the node of the map)
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    // all the entries, pending ones included
+    @Value("${todolist.idempotency.max-bytes:33554432}")
+    private long maxBytes;
+
+    // a bigger response isn't kept: a retry runs the request again (the sync is safe with its client ids and base versions)
+    @Value("${todolist.idempotency.max-entry-bytes:1048576}")
+    private int maxEntryBytes;
+
+    // ms that a response is kept
+    @Value("${todolist.idempotency.ttl:86400000}")
+    private long ttl;
+
+    @Value("${todolist.idempotency.max-body-size:1048576}")
+    private int maxBodySize;
+
+    @Value("${todolist.idempotency.max-key-length:255}")
+    private int maxKeyLength;
+
+    // LRU by access, bounded by maxBytes: the oldest keys are removed first
+    private BoundedLruMap<String, Entry> entries;
+
+    @PostConstruct
+    public void init() {
+        entries = new BoundedLruMap<>(maxBytes, Entry::size);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(HEADER) == null
+                || !ROUTES.matcher(request.getRequestURI()).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            chain.doFilter(request, response); // rejected by the security
+            return;
+        }
+        String idempotencyKey = request.getHeader(HEADER);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > maxKeyLength) {
+            writeError(response, HttpStatus.BAD_REQUEST, "Invalid " + HEADER);
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(maxBodySize + 1);
+        if (body.length > maxBodySize) {
+            writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "The body is too large for an " + HEADER);
+            return;
+        }
+        String key = authentication.getName() + " " + request.getRequestURI() + " " + idempotencyKey;
+        byte[] fingerprint = fingerprint(body);
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entries.put(key, new Entry(key, fingerprint, System.currentTimeMillis() + ttl));
+            }
+        }
+        if (entry != null) {
+            replay(entry, fingerprint, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            chain.doFilter(new CachedBodyRequest(request, body), cachingResponse);
+            int status = cachingResponse.getStatus();
+            // the server errors and the limits can be retried with the same key
+            if (status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value() && !request.isAsyncStarted()
+                    && cachingResponse.getContentSize() <= maxEntryBytes) {
+                synchronized (entries) {
+                    Entry pending = entries.get(key);
+                    if (pending != null) {
+                        entries.put(key, pending.complete(status, cachingResponse.getContentType(), cachingResponse.getContentAsByteArray()));
+                        stored = true;
+                    }
+                }
+            }
+        } finally {
+            if (!stored) {
+                synchronized (entries) {
+                    entries.remove(key);
+                }
+            }
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+
+    private void replay(Entry entry, byte[] fingerprint, HttpServletResponse response) throws IOException {
+        if (!MessageDigest.isEqual(entry.fingerprint, fingerprint)) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY, "The " + HEADER + " was already used with another request");
+            return;
+        }
+        if (!entry.completed) {
+            writeError(response, HttpStatus.CONFLICT, "A request with the same " + HEADER + " is in progress");
+            return;
+        }
+        response.setStatus(entry.status);
+        if (entry.contentType != null) {
+            response.setContentType(entry.contentType);
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(entry.body.length);
+        response.getOutputStream().write(entry.body);
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+
+    private byte[] fingerprint(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // the expired entries of the keys that aren't used again
+    @Scheduled(fixedDelayString = "${todolist.idempotency.purge-interval:600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            entries.removeIf((key, entry) -> entry.isExpired(now));
+        }
+    }
+
+    // pending until its response: then replaced by the completed one (its size changes)
+    private record Entry(int keyLength, byte[] fingerprint, long expiresAt, boolean completed,
+                         int status, String contentType, byte[] body) {
+        Entry(String key, byte[] fingerprint, long expiresAt) {
+            this(key.length(), fingerprint, expiresAt, false, 0, null, null);
+        }
+
+        long size() {
+            return ENTRY_OVERHEAD_BYTES + 2L * keyLength + fingerprint.length + (body != null ? body.length : 0);
+        }
+
+        Entry complete(int status, String contentType, byte[] body) {
+            return new Entry(keyLength, fingerprint, expiresAt, true, status, contentType, body);
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt < now;
+        }
+    }
+}
@@ -55,8 +55,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter { // Filter fo
             // user's details by the username
             UserDetails userDetails = userDetailsService.loadUserByUsername(username);
             // userDetails already user validated
-            // validates the token with the details
-            if (jwtUtils.validateToken(token, userDetails.getUsername())) {
+            // validates the token with the details (a disabled account invalidates all its tokens)
+            if (userDetails.isEnabled() && jwtUtils.validateToken(token, userDetails.getUsername())) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities()); // user's authorities/rol
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request)); // in this petition is the authenticate user
@@ -0,0 +1,84 @@
+package com.mindhub.todolist.config;
+
+import com.mindhub.todolist.services.EntityUserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+// Authentication of the WebSocket: the token is validated once, in the handshake
+// same validations as the JwtAuthenticationFilter
+@Component
+public class JwtHandshakeInterceptor implements HandshakeInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(JwtHandshakeInterceptor.class);
+
+    // attribute of the session with the id of the authenticated user
+    public static final String USER_ID = "userId";
+
+    // and its username (the key of its rate limit)
+    public static final String USERNAME = "username";
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private EntityUserService entityUserService;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String token = resolveToken(request);
+        if (token == null) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        try {
+            String username = jwtUtils.extractUsername(token);
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // a disabled account invalidates all its tokens
+            if (!userDetails.isEnabled() || !jwtUtils.validateToken(token, userDetails.getUsername())) {
+                response.setStatusCode(HttpStatus.UNAUTHORIZED);
+                return false;
+            }
+            // only the users (like /api/user/**)
+            if (userDetails.getAuthorities().stream().noneMatch(authority -> "USER".equals(authority.getAuthority()))) {
+                response.setStatusCode(HttpStatus.FORBIDDEN);
+                return false;
+            }
+            attributes.put(USER_ID, entityUserService.getEntityUserIdByEmail(username));
+            attributes.put(USERNAME, username);
+            return true;
+        } catch (RuntimeException e) {
+            logger.debug("WebSocket handshake rejected: {}", e.getMessage());
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    // Authorization header or access_token parameter (the browsers can't send headers in the WebSocket)
+    private String resolveToken(ServerHttpRequest request) {
+        String header = request.getHeaders().getFirst("Authorization");
+        if (header != null && header.startsWith("Bearer ")) {
+            return header.substring(7);
+        }
+        return UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("access_token");
+    }
+}
@@ -0,0 +1,162 @@
+package com.mindhub.todolist.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Rate limit by client (token bucket): after the JwtAuthenticationFilter,
+// the authenticated users have their bucket and the anonymous requests one by IP
+// Each group of routes (auth, user, admin) has its own capacity and refill
+// the messages of the WebSocket use the same buckets (tryAcquire): they don't go through the filters
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Value("${todolist.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    // auth: by IP (login and register), low to slow down the brute force
+    @Value("${todolist.rate-limit.auth.capacity:10}")
+    private int authCapacity;
+
+    @Value("${todolist.rate-limit.auth.per-minute:10}")
+    private int authPerMinute;
+
+    @Value("${todolist.rate-limit.user.capacity:60}")
+    private int userCapacity;
+
+    @Value("${todolist.rate-limit.user.per-minute:300}")
+    private int userPerMinute;
+
+    @Value("${todolist.rate-limit.admin.capacity:30}")
+    private int adminCapacity;
+
+    @Value("${todolist.rate-limit.admin.per-minute:120}")
+    private int adminPerMinute;
+
+    // key: group + user (or IP)
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String group = enabled ? groupOf(request.getRequestURI()) : null;
+        if (group == null) { // swagger, h2 console, WebSocket (its messages are limited in the handler)
+            chain.doFilter(request, response);
+            return;
+        }
+        long waitNanos = tryAcquire(group, clientKey(request));
+        if (waitNanos > 0) {
+            long retryAfter = retryAfterSeconds(waitNanos);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", String.valueOf(retryAfter));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            // same body as the GlobalExceptionHandler
+            response.getWriter().write("{\"error\":\"Too many requests, try again in " + retryAfter + " seconds\"}");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    // a token of the bucket of the client in the group (auth, user or admin): 0 if allowed, else the nanos to wait
+    public long tryAcquire(String group, String clientKey) {
+        Limit limit = enabled ? limitOf(group) : null;
+        if (limit == null) {
+            return 0;
+        }
+        Bucket bucket = buckets.computeIfAbsent(group + ":" + clientKey, key -> new Bucket());
+        return bucket.tryConsume(limit.intervalNanos, limit.burstNanos);
+    }
+
+    // the key of an authenticated user: the same bucket for its requests and its messages
+    public static String userKey(String username) {
+        return "u:" + username;
+    }
+
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    private String groupOf(String uri) {
+        if (uri.startsWith("/api/auth/")) {
+            return "auth";
+        }
+        if (uri.startsWith("/api/user/") || uri.equals("/api/user")) {
+            return "user";
+        }
+        if (uri.startsWith("/api/admin/")) {
+            return "admin";
+        }
+        return null;
+    }
+
+    private Limit limitOf(String group) {
+        return switch (group) {
+            case "auth" -> new Limit(authCapacity, authPerMinute);
+            case "user" -> new Limit(userCapacity, userPerMinute);
+            case "admin" -> new Limit(adminCapacity, adminPerMinute);
+            default -> null;
+        };
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return userKey(authentication.getName());
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    // a full bucket is the same as a new one: removing it doesn't change the limits
+    @Scheduled(fixedDelayString = "${todolist.rate-limit.evict-interval:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private record Limit(long intervalNanos, long burstNanos) {
+        Limit(int capacity, int perMinute) {
+            this(TimeUnit.MINUTES.toNanos(1) / perMinute, (TimeUnit.MINUTES.toNanos(1) / perMinute) * (capacity - 1));
+        }
+    }
+
+    // Token bucket stored as the time when it will be full again (GCRA): one AtomicLong, without locks
+    // each request moves that time one interval ahead, allowed while it isn't more than the burst ahead of now
+    private static class Bucket {
+        private final AtomicLong fullAt = new AtomicLong(System.nanoTime());
+
+        // 0 if allowed, else the nanos to wait for the next token
+        long tryConsume(long intervalNanos, long burstNanos) {
+            while (true) {
+                long now = System.nanoTime();
+                long current = fullAt.get();
+                long base = current - now > 0 ? current : now;
+                long wait = base - now - burstNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (fullAt.compareAndSet(current, base + intervalNanos)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() - now <= 0;
+        }
+    }
+}
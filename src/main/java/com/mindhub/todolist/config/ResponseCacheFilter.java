@@ -0,0 +1,214 @@
+package com.mindhub.todolist.config;
+
+import com.mindhub.todolist.events.UserDeletedEvent;
+import com.mindhub.todolist.exceptions.NotFoundException;
+import com.mindhub.todolist.services.EntityUserService;
+import com.mindhub.todolist.services.TaskCounterService;
+import com.mindhub.todolist.utils.BoundedLruMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.GZIPOutputStream;
+
+// The responses of the reads of every page load (my-tasks, profile), already serialized, by user and version of its data
+// a hit writes the bytes: without the query of the tasks, the DTOs nor Jackson (only the lookups of the id and the version, like the ETag)
+// any change of the tasks or the profile increments the version: the entry isn't used again and the next response replaces it
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+    public static final String CACHE_HEADER = "X-Response-Cache";
+
+    private static final Set<String> ROUTES = Set.of("/api/user/tasks/my-tasks", "/api/user/profile");
+
+    // headers of the response that aren't replayed: of the body written by a hit (its length, gzip) or kept apart
+    private static final Set<String> NOT_REPLAYED = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        NOT_REPLAYED.addAll(List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_ENCODING,
+                HttpHeaders.TRANSFER_ENCODING, HttpHeaders.DATE, CACHE_HEADER));
+    }
+
+    // lazy: the service depends on the security config (its PasswordEncoder), and the security config on this filter
+    @Autowired
+    @Lazy
+    private EntityUserService entityUserService;
+
+    @Autowired
+    private TaskCounterService taskCounterService;
+
+    @Value("${todolist.response-cache.enabled:true}")
+    private boolean enabled;
+
+    // bytes of all the entries (bodies and their gzip)
+    @Value("${todolist.response-cache.max-bytes:33554432}")
+    private long maxBytes;
+
+    // a bigger response isn't stored
+    @Value("${todolist.response-cache.max-entry-bytes:1048576}")
+    private int maxEntryBytes;
+
+    // from this size the gzip is also stored (compressed once, not in every response)
+    @Value("${todolist.response-cache.compress-min-size:1024}")
+    private int compressMinSize;
+
+    // LRU by access, bounded by the bytes: the least used entries are removed first
+    private BoundedLruMap<Key, Entry> entries;
+
+    @PostConstruct
+    public void init() {
+        entries = new BoundedLruMap<>(maxBytes, Entry::size);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"GET".equals(request.getMethod()) || !ROUTES.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Long userId;
+        try {
+            userId = entityUserService.getEntityUserIdByEmail(authentication.getName());
+        } catch (NotFoundException e) {
+            chain.doFilter(request, response); // the controller answers the error
+            return;
+        }
+        // read before the response: the data of the response is of this version or newer, never older
+        long version = taskCounterService.getVersion(userId);
+        // the fields and the format are other responses
+        Key key = new Key(userId, request.getRequestURI(), request.getQueryString(), request.getHeader(HttpHeaders.ACCEPT));
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.version == version) {
+            write(entry, request, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, cachingResponse);
+            if (cachingResponse.getStatus() == HttpStatus.OK.value() && !request.isAsyncStarted()
+                    && cachingResponse.getContentSize() <= maxEntryBytes) {
+                store(key, version, cachingResponse);
+            }
+        } finally {
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+
+    private void write(Entry entry, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(CACHE_HEADER, "HIT");
+        // the headers of the miss (e.g. Cache-Control, ETag): the same response, only served from memory
+        entry.headers.forEach((name, values) -> {
+            response.setHeader(name, values.get(0));
+            values.stream().skip(1).forEach(value -> response.addHeader(name, value));
+        });
+        // the entries are by Accept
+        if (!entry.headers.containsKey(HttpHeaders.VARY)) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        if (entry.gzip != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        // the same If-None-Match as the controller
+        if (entry.etag != null && new ServletWebRequest(request, response).checkNotModified(entry.etag)) {
+            return; // 304
+        }
+        response.setStatus(HttpStatus.OK.value());
+        if (entry.contentType != null) {
+            response.setContentType(entry.contentType);
+        }
+        byte[] body = entry.body;
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (entry.gzip != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            // Tomcat doesn't compress again a response with Content-Encoding
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = entry.gzip;
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private void store(Key key, long version, ContentCachingResponseWrapper response) throws IOException {
+        byte[] body = response.getContentAsByteArray();
+        byte[] gzip = body.length >= compressMinSize ? gzip(body) : null;
+        Map<String, List<String>> headers = new LinkedCaseInsensitiveMap<>();
+        for (String name : response.getHeaderNames()) {
+            if (!NOT_REPLAYED.contains(name) && !headers.containsKey(name)) {
+                headers.put(name, List.copyOf(response.getHeaders(name)));
+            }
+        }
+        Entry entry = new Entry(version, response.getContentType(), response.getHeader(HttpHeaders.ETAG), headers, body, gzip);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(body);
+        }
+        return output.toByteArray();
+    }
+
+    // the responses of a deleted user: they aren't read again, only the LRU would remove them
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        synchronized (entries) {
+            entries.removeIf((key, entry) -> key.userId().equals(event.userId()));
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private record Key(Long userId, String path, String query, String accept) {
+    }
+
+    private record Entry(long version, String contentType, String etag, Map<String, List<String>> headers, byte[] body, byte[] gzip) {
+        long size() {
+            long headerBytes = 0;
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                for (String value : header.getValue()) {
+                    headerBytes += header.getKey().length() + value.length();
+                }
+            }
+            return headerBytes + body.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
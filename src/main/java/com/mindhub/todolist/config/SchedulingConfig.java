@@ -0,0 +1,10 @@
+package com.mindhub.todolist.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Enables the @Scheduled methods (background jobs like the user deletion)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
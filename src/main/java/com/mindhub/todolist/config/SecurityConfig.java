@@ -1,5 +1,6 @@
 package com.mindhub.todolist.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,6 +14,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -31,6 +33,15 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    private IdempotencyFilter idempotencyFilter;
+
+    @Autowired
+    private ResponseCacheFilter responseCacheFilter;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder(); // Define the password encoder bean
@@ -42,9 +53,12 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable) // Disable CSRF for REST APIs
                 .authorizeHttpRequests(authorizeRequests -> // permit the routes by authorities
                         authorizeRequests
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll() // the async dispatch of a request already authorized (SSE)
                                 .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html" ,"/h2-console/**")
                                 .permitAll() // to access to the API and the db when you are in development
                                 .requestMatchers( "/api/auth/**", "/index.html" ).permitAll() // anyone can access to this routes
+                                .requestMatchers("/ws/**").permitAll() // the WebSocket validates the token in the handshake (JwtHandshakeInterceptor)
+                                .requestMatchers("/api/batch").hasAnyAuthority("USER", "ADMIN") // each sub-request is authorized by its own path (BatchController)
                                 .requestMatchers("/api/user/**").hasAuthority("USER")
                                 .requestMatchers("/api/admin/**").hasAuthority("ADMIN")// Allow public access to specific endpoints
                                 .anyRequest().denyAll() // All other requests must be authenticated
@@ -60,7 +74,10 @@ public class SecurityConfig {
                 .sessionManagement(sessionManagement ->
                         sessionManagement.sessionCreationPolicy(SessionCreationPolicy.STATELESS) // session policy: without state, session exist in the client-side, the session doesn't exist in the server-side, only the token, info about the session
                 ) // add the filter: jwtAuthenticationFilter before standard authentication filter, personalized
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class); // Apply JWT filter
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class) // Apply JWT filter
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class) // after the JWT: limited by user (or by IP if anonymous)
+                .addFilterAfter(idempotencyFilter, RateLimitFilter.class) // retries of the creates with the same Idempotency-Key
+                .addFilterAfter(responseCacheFilter, AuthorizationFilter.class); // after the authorization: a hit is only for an allowed request
 
         return http.build();
     }
@@ -74,8 +91,8 @@ public class SecurityConfig {
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(Arrays.asList("*")); // from any frontend they can do petitions
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE"));
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Idempotency-Key"));
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
         return source;
@@ -0,0 +1,46 @@
+package com.mindhub.todolist.config;
+
+import com.mindhub.todolist.controllers.TaskWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+// WebSocket of the tasks: /ws/tasks (authenticated in the handshake with the JWT)
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+    @Autowired
+    private TaskWebSocketHandler taskWebSocketHandler;
+
+    @Autowired
+    private JwtHandshakeInterceptor jwtHandshakeInterceptor;
+
+    // Tomcat allocates these buffers for every connection (also the idle ones)
+    @Value("${todolist.websocket.text-buffer-size:8192}")
+    private int textBufferSize;
+
+    @Value("${todolist.websocket.binary-buffer-size:1024}")
+    private int binaryBufferSize;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(taskWebSocketHandler, "/ws/tasks")
+                .addInterceptors(jwtHandshakeInterceptor)
+                .setAllowedOriginPatterns("*"); // same as the CORS of the API
+    }
+
+    // init parameters read by the WebSocket container of Tomcat
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> webSocketBufferCustomizer() {
+        return factory -> factory.addContextCustomizers(context -> {
+            context.addParameter("org.apache.tomcat.websocket.textBufferSize", String.valueOf(textBufferSize));
+            context.addParameter("org.apache.tomcat.websocket.binaryBufferSize", String.valueOf(binaryBufferSize));
+        });
+    }
+}
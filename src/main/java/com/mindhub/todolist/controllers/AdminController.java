@@ -1,25 +1,35 @@
 package com.mindhub.todolist.controllers;
 
-import com.mindhub.todolist.dtos.EntityUserDTO;
+import com.mindhub.todolist.dtos.CacheRegionStatsDTO;
+import com.mindhub.todolist.dtos.DeletionJobDTO;
+import com.mindhub.todolist.dtos.EntityUserSummaryDTO;
 import com.mindhub.todolist.dtos.NewEntityUser;
 import com.mindhub.todolist.dtos.UpdateEntityUserPasswordDTO;
 import com.mindhub.todolist.dtos.UpdateEntityUserUsernameEmailDTO;
+import com.mindhub.todolist.dtos.UserField;
+import com.mindhub.todolist.services.CacheStatsService;
 import com.mindhub.todolist.services.EntityUserService;
-import jakarta.persistence.EntityNotFoundException;
+import com.mindhub.todolist.services.TaskCounterService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -27,66 +37,101 @@ public class AdminController {
     @Autowired
     private EntityUserService entityUserService;
 
-    // Validate errors
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    @ExceptionHandler(MethodArgumentNotValidException.class)
-    public Map<String, String> handleValidationExceptions(MethodArgumentNotValidException ex) {
-        Map<String, String> errors = new HashMap<>();
-        ex.getBindingResult().getFieldErrors().forEach(error -> {
-            String fieldName = error.getField();
-            String errorMessage = error.getDefaultMessage();
-            errors.put(fieldName, errorMessage);
-        });
-        return errors;
-    }
-    // Validate business exceptions
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    @ExceptionHandler(EntityNotFoundException.class)
-    public Map<String, String> handleEntityNotFound(EntityNotFoundException ex) {
-        Map<String, String> error = new HashMap<>();
-        error.put("error", ex.getMessage());
-        return error;
-    }
+    @Autowired
+    private TaskCounterService taskCounterService;
 
-    // Validate general exceptions
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-    @ExceptionHandler(Exception.class)
-    public Map<String, String> handleGeneralExceptions(Exception ex) {
-        Map<String, String> error = new HashMap<>();
-        error.put("error", "An unexpected error occurred: " + ex.getMessage());
-        return error;
-    }
+    @Autowired
+    private CacheStatsService cacheStatsService;
+
+    // bulkhead of the heavy admin operations (AsyncConfig)
+    @Autowired
+    @Qualifier("adminExecutor")
+    private Executor adminExecutor;
+
+    @Autowired
+    private StreamingArrayWriter streamingArrayWriter;
 
     // List all users
-    @Operation(summary = "Get all users", description = "Return the information about all users")
+    @Operation(summary = "Get all users", description = "Return the information about all users. " +
+            "fields (optional): only these fields of each user, e.g. fields=id,username,email (without tasks they aren't loaded)")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Users retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Users not modified (If-None-Match)"),
             @ApiResponse(responseCode = "404", description = "Users not found"),
-            @ApiResponse(responseCode = "400", description = "Invalid input data")
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "503", description = "The server is busy")
     })
     @GetMapping("/users")
-    public ResponseEntity<List<EntityUserDTO>> getAllUsers() {
-        List<EntityUserDTO> users = entityUserService.getAllEntityUsers();
-        return new ResponseEntity<>(users, HttpStatus.OK);
+    public ResponseEntity<StreamingResponseBody> getAllUsers(@RequestParam(required = false) String fields,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                             WebRequest webRequest) {
+        Set<UserField> userFields = UserField.parse(fields);
+        // the users include their tasks: changes with any change
+        String etag = "\"users-" + taskCounterService.getGlobalVersion() + UserField.etagSuffix(userFields) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        // written while it's read (async thread of Spring MVC), the Tomcat thread is released; 503 without a free admin permit
+        if (userFields == null) {
+            return streamingArrayWriter.ok(etag, accept, webRequest, entityUserService::streamAllEntityUsers);
+        }
+        return streamingArrayWriter.ok(etag, accept, webRequest, (Consumer<Map<String, Object>> consumer) -> entityUserService.streamAllEntityUserFields(userFields, consumer));
     }
 
     // Return a user by id
-    @Operation(summary = "Get a user by ID", description = "Return the information about a user by its ID")
+    @Operation(summary = "Get a user by ID", description = "Return the information about a user by its ID. " +
+            "fields (optional): only these fields, e.g. fields=id,username,email (without tasks they aren't loaded)")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "User not modified (If-None-Match)"),
             @ApiResponse(responseCode = "404", description = "User not found"),
             @ApiResponse(responseCode = "400", description = "Invalid input data")
     })
     @GetMapping("/user/{id}")
-    public ResponseEntity<?> getUserById(@PathVariable Long id) {
-        try {
-            EntityUserDTO user = entityUserService.getEntityUserDTOById(id);
-            return new ResponseEntity<>(user, HttpStatus.OK);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
-        } catch (Exception e) {
-            return new ResponseEntity<>("An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
+    public ResponseEntity<?> getUserById(@PathVariable Long id, @RequestParam(required = false) String fields, WebRequest webRequest) {
+        Set<UserField> userFields = UserField.parse(fields);
+        // same ETag as the profile of the user
+        String etag = "\"profile-" + id + "-" + taskCounterService.getVersion(id) + UserField.etagSuffix(userFields) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304
         }
+        Object user = userFields == null ? entityUserService.getEntityUserDTOById(id) : entityUserService.getEntityUserFieldsById(id, userFields);
+        return ResponseEntity.ok().eTag(etag).body(user);
+    }
+
+    // Return the counts by status of a user
+    @Operation(summary = "Get a user's summary by ID", description = "Return the information about a user with the number of tasks by status")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Summary retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    @GetMapping("/user/{id}/summary")
+    public ResponseEntity<?> getUserSummaryById(@PathVariable Long id) {
+        EntityUserSummaryDTO summary = entityUserService.getEntityUserSummaryById(id);
+        return new ResponseEntity<>(summary, HttpStatus.OK);
+    }
+
+    // Repair the counters of the tasks (all users)
+    @Operation(summary = "Recount the tasks of all users", description = "Recalculate the counters of the tasks from the tasks table")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Counters recalculated successfully")
+    })
+    @PostMapping("/counters/recount")
+    public CompletableFuture<ResponseEntity<String>> recountAll() {
+        return CompletableFuture.supplyAsync(() -> {
+            int corrected = taskCounterService.recountAll();
+            return new ResponseEntity<>("Counters corrected for " + corrected + " users", HttpStatus.OK);
+        }, adminExecutor);
+    }
+
+    // Efficiency of the second-level cache (users, emails, tasks)
+    @Operation(summary = "Get the cache statistics", description = "Return the hits, misses and puts of every region of the second-level cache since the start")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    })
+    @GetMapping("/cache/stats")
+    public ResponseEntity<List<CacheRegionStatsDTO>> getCacheStats() {
+        return new ResponseEntity<>(cacheStatsService.getSecondLevelCacheStats(), HttpStatus.OK);
     }
 
     // Create a user
@@ -124,14 +169,8 @@ public class AdminController {
     })
     @PutMapping("/user/{id}")
     public ResponseEntity<?> updateEntityUser(@PathVariable Long id, @Valid @RequestBody UpdateEntityUserUsernameEmailDTO updatedUser) {
-        try {
-            entityUserService.updateEntityUserUsernameEmail(id, updatedUser);
-            return new ResponseEntity<>("User updated successfully", HttpStatus.OK);
-        } catch (IllegalArgumentException e) { // always before a RunTimeException that is general
-            return new ResponseEntity<>("Invalid data provided: " + e.getMessage(), HttpStatus.BAD_REQUEST);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
-        }
+        entityUserService.updateEntityUserUsernameEmail(id, updatedUser);
+        return new ResponseEntity<>("User updated successfully", HttpStatus.OK);
     }
 
     // Update Password - User
@@ -143,30 +182,42 @@ public class AdminController {
     })
     @PutMapping("/user/{id}/password")
     public ResponseEntity<?> updatePassword(@PathVariable Long id, @Valid @RequestBody UpdateEntityUserPasswordDTO updatedPassword) {
-        try {
-            entityUserService.updateEntityUserPassword(id, updatedPassword);
-            return new ResponseEntity<>("Password updated successfully", HttpStatus.OK);
-        } catch (IllegalArgumentException e) { // always before a RunTimeException that is general
-            return new ResponseEntity<>("Invalid data provided: " + e.getMessage(), HttpStatus.BAD_REQUEST);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
-        }
+        entityUserService.updateEntityUserPassword(id, updatedPassword);
+        return new ResponseEntity<>("Password updated successfully", HttpStatus.OK);
     }
 
     // Delete a user
-    @Operation(summary = "Delete a user", description = "Delete a user by its ID")
+    @Operation(summary = "Delete a user", description = "Disable a user by its ID and schedule its deletion")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "User deleted successfully"),
-            @ApiResponse(responseCode = "404", description = "Invalid input data"),
+            @ApiResponse(responseCode = "202", description = "User deletion scheduled"),
+            @ApiResponse(responseCode = "404", description = "User not found"),
             @ApiResponse(responseCode = "400", description = "Invalid input data")
     })
     @DeleteMapping("/user/{id}")
     public ResponseEntity<?> deleteEntityUser(@PathVariable Long id) {
-        boolean deleted = entityUserService.deleteEntityUser(id);
-        if (!deleted) {
-            return new ResponseEntity<>("User not found", HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<>("User deleted successfully", HttpStatus.OK);
+        DeletionJobDTO deletionJob = entityUserService.requestEntityUserDeletion(id);
+        return new ResponseEntity<>(deletionJob, HttpStatus.ACCEPTED);
+    }
+
+    // List the user deletions (progress)
+    @Operation(summary = "Get all user deletions", description = "Return the progress of the scheduled user deletions")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Deletions retrieved successfully")
+    })
+    @GetMapping("/deletions")
+    public ResponseEntity<List<DeletionJobDTO>> getAllDeletionJobs() {
+        return new ResponseEntity<>(entityUserService.getAllDeletionJobs(), HttpStatus.OK);
+    }
+
+    // Return a user deletion by id
+    @Operation(summary = "Get a user deletion by ID", description = "Return the progress of a scheduled user deletion")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Deletion retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Deletion not found")
+    })
+    @GetMapping("/deletions/{id}")
+    public ResponseEntity<?> getDeletionJobById(@PathVariable Long id) {
+        return new ResponseEntity<>(entityUserService.getDeletionJobById(id), HttpStatus.OK);
     }
 
 }
@@ -2,25 +2,30 @@ package com.mindhub.todolist.controllers;
 
 import com.mindhub.todolist.dtos.EntityUserDTO;
 import com.mindhub.todolist.dtos.NewTask;
+import com.mindhub.todolist.dtos.TaskBatchDTO;
 import com.mindhub.todolist.dtos.TaskDTO;
+import com.mindhub.todolist.dtos.TaskField;
+import com.mindhub.todolist.exceptions.ForbiddenException;
 import com.mindhub.todolist.models.RoleType;
 import com.mindhub.todolist.services.EntityUserService;
+import com.mindhub.todolist.services.TaskCounterService;
 import com.mindhub.todolist.services.TaskService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
-import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 // TaskController: for "ADMIN"
 @RestController
 @RequestMapping("/api/admin/tasks")
@@ -31,88 +36,99 @@ public class AdminTaskController {
     @Autowired
     private EntityUserService entityUserService;
 
-    // Validate errors
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    @ExceptionHandler(MethodArgumentNotValidException.class)
-    public Map<String, String> handleValidationExceptions(MethodArgumentNotValidException ex) {
-        Map<String, String> errors = new HashMap<>();
-        ex.getBindingResult().getFieldErrors().forEach(error -> {
-            String fieldName = error.getField();
-            String errorMessage = error.getDefaultMessage();
-            errors.put(fieldName, errorMessage);
-        });
-        return errors;
-    }
-    // Validate business exceptions
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    @ExceptionHandler(EntityNotFoundException.class)
-    public Map<String, String> handleEntityNotFound(EntityNotFoundException ex) {
-        Map<String, String> error = new HashMap<>();
-        error.put("error", ex.getMessage());
-        return error;
-    }
+    @Autowired
+    private TaskCounterService taskCounterService;
 
-    // Validate general exceptions
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-    @ExceptionHandler(Exception.class)
-    public Map<String, String> handleGeneralExceptions(Exception ex) {
-        Map<String, String> error = new HashMap<>();
-        error.put("error", "An unexpected error occurred: " + ex.getMessage());
-        return error;
-    }
+    @Autowired
+    private StreamingArrayWriter streamingArrayWriter;
 
     // Admin endpoints
 
     // Get all user's tasks by user's ID
-    @Operation(summary = "Get all tasks for a user", description = "Return all tasks associated with a specific user ID")
+    @Operation(summary = "Get all tasks for a user", description = "Return all tasks associated with a specific user ID, without the descriptions. " +
+            "fields (optional): only these fields of each task, e.g. fields=id,title,status")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Tasks retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Tasks not modified (If-None-Match)"),
             @ApiResponse(responseCode = "404", description = "Tasks not found"),
             @ApiResponse(responseCode = "400", description = "Invalid input data")
     })
     @GetMapping("/users/{userId}/tasks")
-    public ResponseEntity<List<TaskDTO>> getAllTasksById(@PathVariable Long userId) {
-        List<TaskDTO> tasks = taskService.getAllTasksById(userId);
-        return new ResponseEntity<>(tasks, HttpStatus.OK);
+    public ResponseEntity<?> getAllTasksById(@PathVariable Long userId, @RequestParam(required = false) String fields, WebRequest webRequest) {
+        Set<TaskField> taskFields = TaskField.parse(fields);
+        // same ETag as the my-tasks of the user
+        String etag = "\"tasks-" + userId + "-" + taskCounterService.getVersion(userId) + TaskField.etagSuffix(taskFields) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304
+        }
+        Object tasks = taskFields == null ? taskService.getAllTasksById(userId) : taskService.getTaskFieldsByUserId(userId, taskFields);
+        return ResponseEntity.ok().eTag(etag).body(tasks);
     }
 
     // List all tasks
-    @Operation(summary = "Get all tasks", description = "Return the information about all tasks")
+    @Operation(summary = "Get all tasks", description = "Return the information about all tasks, without the descriptions. " +
+            "fields (optional): only these fields of each task, e.g. fields=id,title,status")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Tasks retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Tasks not modified (If-None-Match)"),
             @ApiResponse(responseCode = "404", description = "Tasks not found"),
-            @ApiResponse(responseCode = "400", description = "Invalid input data")
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "503", description = "The server is busy")
     })
     @GetMapping
-    public ResponseEntity<List<TaskDTO>> getAllTasks() {
-        List<TaskDTO> tasks = taskService.getAllTasks();
-        return new ResponseEntity<>(tasks, HttpStatus.OK);
+    public ResponseEntity<StreamingResponseBody> getAllTasks(@RequestParam(required = false) String fields,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                             WebRequest webRequest) {
+        Set<TaskField> taskFields = TaskField.parse(fields);
+        // all the tasks: changes with any change of any user
+        String etag = "\"tasks-" + taskCounterService.getGlobalVersion() + TaskField.etagSuffix(taskFields) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        // written while it's read (async thread of Spring MVC), the Tomcat thread is released; 503 without a free admin permit
+        if (taskFields == null) {
+            return streamingArrayWriter.ok(etag, accept, webRequest, taskService::streamAllTasks);
+        }
+        return streamingArrayWriter.ok(etag, accept, webRequest, (Consumer<Map<String, Object>> consumer) -> taskService.streamAllTaskFields(taskFields, consumer));
+    }
+
+    // Multi-get: a set of tasks by ID in one request
+    @Operation(summary = "Get a set of tasks by ID", description = "Return the tasks of the ids (ids=1,2,3) in one query. The ids not found are returned in missing")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tasks retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data")
+    })
+    @GetMapping(params = "ids")
+    public ResponseEntity<TaskBatchDTO> getTasksByIds(@RequestParam List<Long> ids) {
+        return new ResponseEntity<>(taskService.getTasksByIds(ids, null), HttpStatus.OK);
     }
 
     // Get a Task by ID
-    @Operation(summary = "Get a task by ID", description = "Return the information about a specific task by its ID")
+    @Operation(summary = "Get a task by ID", description = "Return the information about a specific task by its ID. " +
+            "fields (optional): only these fields, e.g. fields=id,title,status")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Task retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Task not modified (If-None-Match)"),
             @ApiResponse(responseCode = "404", description = "Task not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error"),
             @ApiResponse(responseCode = "400", description = "Invalid input data")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<?> getTaskById(@PathVariable Long id) {
-        try {
-            TaskDTO task = taskService.getTaskDTOById(id);
-            return new ResponseEntity<>(task, HttpStatus.OK);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
-        } catch (Exception e) {
-            return new ResponseEntity<>("An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
+    public ResponseEntity<?> getTaskById(@PathVariable Long id, @RequestParam(required = false) String fields, WebRequest webRequest) {
+        Set<TaskField> taskFields = TaskField.parse(fields);
+        // version of the task (@Version), not of the user
+        String etag = "\"task-" + id + "-" + taskService.getTaskVersion(id) + TaskField.etagSuffix(taskFields) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304
         }
+        Object task = taskFields == null ? taskService.getTaskDTOById(id) : taskService.getTaskFieldsById(id, taskFields);
+        return ResponseEntity.ok().eTag(etag).body(task);
     }
 
     public boolean validateUser(Long id) {
         EntityUserDTO user = entityUserService.getEntityUserDTOById(id);
         if (user.getRole().equals(RoleType.ADMIN)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You can't create a task for an administrator");
+            throw new ForbiddenException("You can't create a task for an administrator");
         }
         return true;
     }
@@ -121,20 +137,15 @@ public class AdminTaskController {
     @Operation(summary="Create a task", description = "Create a new task for a specific user")
     @ApiResponses(value= {
             @ApiResponse(responseCode = "201", description = "Task created successfully"),
-            @ApiResponse(responseCode = "404", description = "Invalid input data"),
+            @ApiResponse(responseCode = "403", description = "The user is an administrator"),
+            @ApiResponse(responseCode = "404", description = "User not found"),
             @ApiResponse(responseCode = "400", description = "Invalid input data")
     })
     @PostMapping("user/{userId}")
     public ResponseEntity<?> createTask(@PathVariable Long userId, @Valid @RequestBody NewTask newTask) {
-        try {
-            if (validateUser(userId)) {
-                taskService.createNewTask(userId, newTask);
-                return new ResponseEntity<>("Task created successfully", HttpStatus.CREATED);
-            }
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>("You can't create a task for an administrator", HttpStatus.FORBIDDEN);
-        }
-        return new ResponseEntity<>("Unexpected error", HttpStatus.INTERNAL_SERVER_ERROR);
+        validateUser(userId);
+        taskService.createNewTask(userId, newTask);
+        return new ResponseEntity<>("Task created successfully", HttpStatus.CREATED);
     }
     // Update a task
     @Operation(summary = "Update a task", description = "Update a task by its ID")
@@ -145,12 +156,8 @@ public class AdminTaskController {
     })
     @PutMapping("/{id}")
     public ResponseEntity<?> updateTask(@PathVariable Long id, @Valid @RequestBody TaskDTO updatedTask) {
-        try {
-            taskService.updateTask(id, updatedTask);
-            return new ResponseEntity<>("Task updated successfully", HttpStatus.OK);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
-        }
+        taskService.updateTask(id, updatedTask);
+        return new ResponseEntity<>("Task updated successfully", HttpStatus.OK);
     }
     // Delete a Task
     @Operation(summary = "Delete a task", description = "Delete a task by its ID")
@@ -161,12 +168,8 @@ public class AdminTaskController {
     })
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteTask(@PathVariable Long id) {
-        try {
-            taskService.deleteTask(id);
-            return new ResponseEntity<>("Task deleted successfully", HttpStatus.OK);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
-        }
+        taskService.deleteTask(id);
+        return new ResponseEntity<>("Task deleted successfully", HttpStatus.OK);
     }
 
     /*
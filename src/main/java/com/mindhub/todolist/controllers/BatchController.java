@@ -0,0 +1,205 @@
+package com.mindhub.todolist.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.mindhub.todolist.dtos.BatchOperation;
+import com.mindhub.todolist.dtos.BatchRequest;
+import com.mindhub.todolist.dtos.BatchResult;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Batch: several requests of the api in one (e.g. the calls of the page load)
+// the token is validated and the user loaded once, then each sub-request goes through the controllers as a normal request
+// and through the filters of a request: a token of the rate limit, a slot of the concurrency limit (/api/batch itself
+// doesn't take one), its Idempotency-Key and the response cache for each sub-request
+@RestController
+@RequestMapping("/api")
+public class BatchController {
+    private static final Logger logger = LoggerFactory.getLogger(BatchController.class);
+
+    @Autowired
+    private DispatcherServlet dispatcherServlet;
+
+    // the rules of SecurityConfig for the path of each sub-request (/api/admin/** only for ADMIN)
+    @Autowired
+    private SecurityFilterChain securityFilterChain;
+
+    private AuthorizationManager<HttpServletRequest> authorizationManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // the filters of the servlet container, in their order
+    @Autowired
+    private ObjectProvider<Filter> filters;
+
+    // the same filters as a request, the DispatcherServlet after the last one
+    private List<Filter> subRequestFilters;
+
+    @Autowired
+    @Qualifier("batchExecutor")
+    private Executor batchExecutor;
+
+    @Value("${todolist.batch.max-requests:20}")
+    private int maxRequests;
+
+    @PostConstruct
+    public void init() {
+        authorizationManager = securityFilterChain.getFilters().stream()
+                .filter(AuthorizationFilter.class::isInstance)
+                .map(filter -> ((AuthorizationFilter) filter).getAuthorizationManager())
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("The security filter chain has no authorization rules"));
+        // of the security chain only the filters of the app (jwt, rate limit, idempotency, response cache), in its order:
+        // the user of the batch is already authenticated and each path is authorized in dispatch
+        List<Filter> securityFilters = securityFilterChain.getFilters();
+        List<Filter> registered = filters.orderedStream().toList();
+        List<Filter> chain = new ArrayList<>();
+        for (Filter filter : registered) {
+            if (filter instanceof FilterChainProxy) {
+                securityFilters.stream().filter(registered::contains).forEach(chain::add);
+            } else if (!securityFilters.contains(filter)) {
+                chain.add(filter);
+            }
+        }
+        subRequestFilters = List.copyOf(chain);
+    }
+
+    @Operation(summary = "Run several requests in one (user logged in)", description = "Each request has a method, a path of the api (with its query), optional headers and a JSON body. " +
+            "Return a response (status, headers and body) for each request, in the same order. " +
+            "The GET next to each other run in parallel, the other methods one by one in order. The streams (SSE) and the admin listings can't be used in a batch (501). " +
+            "Each request counts for the rate and concurrency limits like a request of its own (429 or 503 in its status)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Requests run, see the status of each one"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchResult>> runBatch(@Valid @RequestBody BatchRequest batchRequest, HttpServletRequest request,
+                                                      HttpServletResponse response, Authentication authentication) {
+        List<BatchOperation> operations = batchRequest.requests();
+        if (operations.size() > maxRequests) {
+            throw new IllegalArgumentException("A batch can have at most " + maxRequests + " requests");
+        }
+        BatchResult[] results = new BatchResult[operations.size()];
+        List<CompletableFuture<Void>> reads = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            BatchOperation operation = operations.get(i);
+            int index = i;
+            if ("GET".equals(operation.method())) {
+                // the user of the batch in the thread of the read
+                reads.add(CompletableFuture.runAsync(new DelegatingSecurityContextRunnable(
+                        () -> results[index] = dispatch(operation, request, response, authentication)), batchExecutor));
+            } else {
+                // a write sees the reads before it finished, and the reads after it see the write
+                CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).join();
+                reads.clear();
+                results[index] = dispatch(operation, request, response, authentication);
+            }
+        }
+        CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).join();
+        return new ResponseEntity<>(Arrays.asList(results), HttpStatus.OK);
+    }
+
+    private BatchResult dispatch(BatchOperation operation, HttpServletRequest request, HttpServletResponse response, Authentication authentication) {
+        try {
+            byte[] body = operation.body() == null || operation.body().isNull() ? new byte[0] : objectMapper.writeValueAsBytes(operation.body());
+            BatchSubRequest subRequest = new BatchSubRequest(request, operation.method(), operation.path(), operation.headers(), body);
+            // the same decision as the AuthorizationFilter for a request to this path
+            AuthorizationResult decision = authorizationManager.authorize(() -> authentication, subRequest);
+            if (decision != null && !decision.isGranted()) {
+                return error(HttpStatus.FORBIDDEN, "Access denied");
+            }
+            BatchSubResponse subResponse = new BatchSubResponse(response);
+            new SubRequestChain().doFilter(subRequest, subResponse);
+            return toResult(subResponse);
+        } catch (Exception e) {
+            // the errors of the controllers are already responses (GlobalExceptionHandler), this is an error of the dispatch
+            logger.error("Error running the batch request " + operation.method() + " " + operation.path(), e);
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred");
+        }
+    }
+
+    private BatchResult toResult(BatchSubResponse subResponse) throws Exception {
+        byte[] content = subResponse.getContentAsByteArray();
+        Map<String, String> headers = subResponse.getHeaderMap();
+        JsonNode body = null;
+        if (content.length > 0) {
+            String contentType = headers.get(HttpHeaders.CONTENT_TYPE);
+            body = contentType != null && contentType.contains("json") ? readJson(content) : null;
+            // not JSON (e.g. a String written as is with the type of the Accept): as a text
+            if (body == null) {
+                body = new TextNode(new String(content, Charset.forName(subResponse.getCharacterEncoding())));
+            }
+        } else if (subResponse.getErrorMessage() != null) {
+            body = objectMapper.createObjectNode().put("error", subResponse.getErrorMessage());
+        }
+        return new BatchResult(subResponse.getStatus(), headers, body);
+    }
+
+    private JsonNode readJson(byte[] content) {
+        try {
+            return objectMapper.readTree(content);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private BatchResult error(HttpStatus status, String message) {
+        return new BatchResult(status.value(), Map.of(), objectMapper.createObjectNode().put("error", message));
+    }
+
+    // the filters of a sub-request, one by one, and then its controller
+    private class SubRequestChain implements FilterChain {
+        private int position;
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+            if (position < subRequestFilters.size()) {
+                subRequestFilters.get(position++).doFilter(request, response, this);
+            } else {
+                dispatcherServlet.service(request, response);
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.mindhub.todolist.controllers;
+
+import com.mindhub.todolist.utils.CachedBodyRequest;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A sub-request of a batch: the method, path, headers and body of the operation over the request of the batch
+// (the user, the address and the servlet are the ones of the batch)
+// its own attributes: the sub-requests run in parallel and Spring MVC keeps its state in the attributes
+class BatchSubRequest extends CachedBodyRequest {
+    private final String method;
+    private final String path;
+    private final String queryString;
+    private final Map<String, String[]> parameters = new LinkedHashMap<>();
+    private final Map<String, List<String>> headers = new LinkedCaseInsensitiveMap<>();
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    BatchSubRequest(HttpServletRequest request, String method, String pathAndQuery, Map<String, List<String>> headers, byte[] body) {
+        super(request, body);
+        this.method = method;
+        UriComponents uri = UriComponentsBuilder.fromUriString(pathAndQuery).build();
+        this.path = uri.getPath();
+        this.queryString = uri.getQuery();
+        MultiValueMap<String, String> query = uri.getQueryParams();
+        query.forEach((name, values) -> parameters.put(decode(name),
+                values.stream().map(value -> value == null ? "" : decode(value)).toArray(String[]::new)));
+        if (headers != null) {
+            headers.forEach((name, values) -> {
+                List<String> present = values == null ? List.of() : values.stream().filter(Objects::nonNull).toList();
+                if (!present.isEmpty()) {
+                    this.headers.put(name, present);
+                }
+            });
+        }
+        // the user is the one of the batch: a sub-request can't authenticate another one
+        this.headers.remove(HttpHeaders.AUTHORIZATION);
+        // the results of the batch are JSON (not CBOR or Smile)
+        this.headers.put(HttpHeaders.ACCEPT, List.of(MediaType.APPLICATION_JSON_VALUE));
+        if (body.length > 0) {
+            this.headers.putIfAbsent(HttpHeaders.CONTENT_TYPE, List.of(MediaType.APPLICATION_JSON_VALUE));
+        }
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return getContextPath() + path;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        return new StringBuffer(getScheme() + "://" + getServerName() + ":" + getServerPort() + getRequestURI());
+    }
+
+    @Override
+    public String getServletPath() {
+        return path;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    // Parameters: only the ones of the query
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values == null || values.length == 0 ? null : values[0];
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters.get(name);
+    }
+
+    // Headers: only the ones of the operation (the token was already validated in the batch)
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        return Collections.enumeration(headers.getOrDefault(name, List.of()));
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(headers.keySet());
+    }
+
+    // the headers are of the client: an invalid value is the same as without it (not an error of the dispatch)
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        String value = getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+        HttpHeaders parsed = new HttpHeaders();
+        parsed.set(name, value);
+        try {
+            return parsed.getFirstDate(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader(HttpHeaders.CONTENT_TYPE);
+    }
+
+    // the body is the JSON of the operation
+    @Override
+    public String getCharacterEncoding() {
+        return StandardCharsets.UTF_8.name();
+    }
+
+    // Attributes: of the sub-request only
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    // Async endpoints (SSE, the admin lists in their executor) can't answer inside a batch
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+        throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "This endpoint can't be used in a batch");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        return startAsync();
+    }
+}
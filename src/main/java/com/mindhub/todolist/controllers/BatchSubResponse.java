@@ -0,0 +1,300 @@
+package com.mindhub.todolist.controllers;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// The response of a sub-request of a batch: the status, headers and body stay in memory
+// nothing is written to the response of the batch (it's committed only once, with all the results)
+class BatchSubResponse extends HttpServletResponseWrapper {
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    private final Map<String, List<String>> headers = new LinkedCaseInsensitiveMap<>();
+    private int status = HttpServletResponse.SC_OK;
+    private String errorMessage;
+    private String characterEncoding = StandardCharsets.UTF_8.name();
+    private Locale locale = Locale.getDefault();
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    // like a container: after flushBuffer, sendError or sendRedirect
+    private boolean committed;
+
+    BatchSubResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    // the body written, as the bytes of the response
+    byte[] getContentAsByteArray() {
+        flushWriter();
+        return content.toByteArray();
+    }
+
+    // message of sendError (when the body is empty)
+    String getErrorMessage() {
+        return errorMessage;
+    }
+
+    // the values of each header in one, separated by commas (like HTTP allows)
+    Map<String, String> getHeaderMap() {
+        Map<String, String> joined = new LinkedCaseInsensitiveMap<>();
+        headers.forEach((name, values) -> joined.put(name, String.join(", ", values)));
+        return joined;
+    }
+
+    // Status
+
+    @Override
+    public void setStatus(int sc) {
+        this.status = sc;
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void sendError(int sc) {
+        sendError(sc, null);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+        this.status = sc;
+        this.errorMessage = msg;
+        this.committed = true;
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        this.status = HttpServletResponse.SC_FOUND;
+        setHeader(HttpHeaders.LOCATION, location);
+        this.committed = true;
+    }
+
+    // Headers
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (value == null) {
+            headers.remove(name);
+            return;
+        }
+        List<String> values = new ArrayList<>();
+        values.add(value);
+        headers.put(name, values);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (value != null) {
+            headers.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, formatDate(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, formatDate(date));
+    }
+
+    private static String formatDate(long date) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date).atZone(ZoneOffset.UTC));
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return headers.containsKey(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        List<String> values = headers.get(name);
+        return values == null ? List.of() : List.copyOf(values);
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return List.copyOf(headers.keySet());
+    }
+
+    // in the headers of the result, like the Set-Cookie of a response
+    @Override
+    public void addCookie(Cookie cookie) {
+        ResponseCookie.ResponseCookieBuilder builder = ResponseCookie.from(cookie.getName(), cookie.getValue())
+                .path(cookie.getPath())
+                .domain(cookie.getDomain())
+                .maxAge(cookie.getMaxAge())
+                .secure(cookie.getSecure())
+                .httpOnly(cookie.isHttpOnly());
+        addHeader(HttpHeaders.SET_COOKIE, builder.build().toString());
+    }
+
+    // Content
+
+    @Override
+    public void setContentType(String type) {
+        setHeader(HttpHeaders.CONTENT_TYPE, type);
+        if (type != null) {
+            int charset = type.toLowerCase(Locale.ROOT).indexOf("charset=");
+            if (charset >= 0) {
+                characterEncoding = type.substring(charset + "charset=".length()).trim();
+            }
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader(HttpHeaders.CONTENT_TYPE);
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        if (charset != null) {
+            this.characterEncoding = charset;
+        }
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // written in memory: always possible
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    try {
+                        writeListener.onWritePossible();
+                    } catch (IOException e) {
+                        writeListener.onError(e);
+                    }
+                }
+
+                @Override
+                public void write(int b) {
+                    content.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    content.write(b, off, len);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(content, Charset.forName(characterEncoding)));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() {
+        flushWriter();
+        committed = true;
+    }
+
+    private void flushWriter() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        headers.clear();
+        status = HttpServletResponse.SC_OK;
+        errorMessage = null;
+    }
+
+    @Override
+    public void resetBuffer() {
+        flushWriter();
+        content.reset();
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+    }
+
+    @Override
+    public int getBufferSize() {
+        return content.size();
+    }
+}
@@ -1,22 +1,21 @@
 package com.mindhub.todolist.controllers;
 
 import com.mindhub.todolist.dtos.*;
-import com.mindhub.todolist.dtos.EntityUserDTO;
 import com.mindhub.todolist.services.EntityUserService;
+import com.mindhub.todolist.services.TaskCounterService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
-import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Set;
 
-import java.util.HashMap;
-import java.util.Map;
 
 // Doesn't use entities in controllers (not receive nor send)
 // We use DTO to receive and send in controllers
@@ -31,39 +30,16 @@ public class EntityUserController { // This class also in the context of Spring
     // after make the Implementation this is no longer needed
     //private EntityUserRepository entityUserRepository;
 
-    private Long getAuthenticatedUserId(Authentication authentication) {
-        EntityUserDTO user = entityUserService.getEntityUserDTOByEmail(authentication.getName());
-        return user.getId();
-    }
+    @Autowired
+    private TaskCounterService taskCounterService;
 
-    // Validate errors
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    @ExceptionHandler(MethodArgumentNotValidException.class)
-    public Map<String, String> handleValidationExceptions(MethodArgumentNotValidException ex) {
-        Map<String, String> errors = new HashMap<>();
-        ex.getBindingResult().getFieldErrors().forEach(error -> {
-            String fieldName = error.getField();
-            String errorMessage = error.getDefaultMessage();
-            errors.put(fieldName, errorMessage);
-        });
-        return errors;
-    }
-    // Validate business exceptions
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    @ExceptionHandler(EntityNotFoundException.class)
-    public Map<String, String> handleEntityNotFound(EntityNotFoundException ex) {
-        Map<String, String> error = new HashMap<>();
-        error.put("error", ex.getMessage());
-        return error;
+    private Long getAuthenticatedUserId(Authentication authentication) {
+        return entityUserService.getEntityUserIdByEmail(authentication.getName());
     }
 
-    // Validate general exceptions
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-    @ExceptionHandler(Exception.class)
-    public Map<String, String> handleGeneralExceptions(Exception ex) {
-        Map<String, String> error = new HashMap<>();
-        error.put("error", "An unexpected error occurred: " + ex.getMessage());
-        return error;
+    // the profile includes the tasks: same version as the tasks of the user
+    private String getProfileETag(Long id, Set<UserField> fields) {
+        return "\"profile-" + id + "-" + taskCounterService.getVersion(id) + UserField.etagSuffix(fields) + "\"";
     }
 
     // if the user is authenticated: shows me the email
@@ -79,22 +55,43 @@ public class EntityUserController { // This class also in the context of Spring
     }
 
     // Return a user by authentication
-    @Operation(summary = "Get user's information (logged in)", description = "Return the information about the user authenticated")
+    @Operation(summary = "Get user's information (logged in)", description = "Return the information about the user authenticated. " +
+            "fields (optional): only these fields, e.g. fields=id,username,email (without tasks they aren't loaded)")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "User not modified (If-None-Match)"),
             @ApiResponse(responseCode = "401", description = "Without authorization"),
             @ApiResponse(responseCode = "404", description = "User not found")
     })
     @GetMapping("/profile")
-    public ResponseEntity<?> getProfile(Authentication authentication) {
-        try {
-            EntityUserDTO user = entityUserService.getEntityUserDTOByEmail(getEmail(authentication));
-            return new ResponseEntity<>(user, HttpStatus.OK);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
-        } catch (Exception e) {
-            return new ResponseEntity<>("An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
+    public ResponseEntity<?> getProfile(@RequestParam(required = false) String fields, Authentication authentication, WebRequest webRequest) {
+        Set<UserField> userFields = UserField.parse(fields);
+        String etag = getProfileETag(getAuthenticatedUserId(authentication), userFields);
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304
         }
+        Object user = userFields == null ? entityUserService.getEntityUserDTOByEmail(getEmail(authentication))
+                : entityUserService.getEntityUserFieldsByEmail(getEmail(authentication), userFields);
+        return ResponseEntity.ok().eTag(etag).body(user);
+    }
+
+    // Return the counts by status of the authenticated user (without the tasks)
+    @Operation(summary = "Get user's summary (logged in)", description = "Return the information about the user authenticated with the number of tasks by status")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Summary retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Summary not modified (If-None-Match)"),
+            @ApiResponse(responseCode = "401", description = "Without authorization"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    @GetMapping("/profile/summary")
+    public ResponseEntity<?> getProfileSummary(Authentication authentication, WebRequest webRequest) {
+        Long id = getAuthenticatedUserId(authentication);
+        String etag = "\"summary-" + id + "-" + taskCounterService.getVersion(id) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304
+        }
+        EntityUserSummaryDTO summary = entityUserService.getEntityUserSummaryByEmail(getEmail(authentication));
+        return ResponseEntity.ok().eTag(etag).body(summary);
     }
 
     // Update Username and Email from the authenticated user
@@ -106,14 +103,8 @@ public class EntityUserController { // This class also in the context of Spring
     })
     @PutMapping("/profile")
     public ResponseEntity<?> updateProfile(Authentication authentication, @Valid @RequestBody UpdateEntityUserUsernameEmailDTO updatedUser) {
-        try {
-            entityUserService.updateEntityUserUsernameEmail(getAuthenticatedUserId(authentication), updatedUser);
-            return new ResponseEntity<>("User updated successfully", HttpStatus.OK);
-        } catch (IllegalArgumentException e) { // always before a RunTimeException that is general
-            return new ResponseEntity<>("Invalid data provided: " + e.getMessage(), HttpStatus.BAD_REQUEST);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
-        }
+        entityUserService.updateEntityUserUsernameEmail(getAuthenticatedUserId(authentication), updatedUser);
+        return new ResponseEntity<>("User updated successfully", HttpStatus.OK);
     }
 
     // Update Password from the authenticated user
@@ -124,29 +115,20 @@ public class EntityUserController { // This class also in the context of Spring
     })
     @PutMapping("/profile/password")
     public ResponseEntity<?> updatePassword(Authentication authentication, @Valid @RequestBody UpdateEntityUserPasswordDTO updatedPassword) {
-        try {
-            entityUserService.updateEntityUserPassword(getAuthenticatedUserId(authentication), updatedPassword);
-            return new ResponseEntity<>("Password updated successfully", HttpStatus.OK);
-        } catch (IllegalArgumentException e) { // always before a RunTimeException that is general
-            return new ResponseEntity<>("Invalid data provided: " + e.getMessage(), HttpStatus.BAD_REQUEST);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
-        }
+        entityUserService.updateEntityUserPassword(getAuthenticatedUserId(authentication), updatedPassword);
+        return new ResponseEntity<>("Password updated successfully", HttpStatus.OK);
     }
 
     // Delete the authenticated user
-    @Operation(summary = "Delete user (logged in)", description = "Delete my user that is authenticated")
+    @Operation(summary = "Delete user (logged in)", description = "Disable my user that is authenticated and schedule its deletion")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "User deleted successfully"),
-            @ApiResponse(responseCode = "404", description = "Invalid input data"),
+            @ApiResponse(responseCode = "202", description = "User deletion scheduled"),
+            @ApiResponse(responseCode = "404", description = "User not found"),
             @ApiResponse(responseCode = "400", description = "Invalid input data")
     })
     @DeleteMapping("/delete")
     public ResponseEntity<?> deleteEntityUser(Authentication authentication) {
-        boolean deleted = entityUserService.deleteEntityUser(getAuthenticatedUserId(authentication));
-        if (!deleted) {
-            return new ResponseEntity<>("User not found", HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<>("User deleted successfully", HttpStatus.OK);
+        entityUserService.requestEntityUserDeletion(getAuthenticatedUserId(authentication));
+        return new ResponseEntity<>("User deletion scheduled", HttpStatus.ACCEPTED);
     }
 }
@@ -0,0 +1,133 @@
+package com.mindhub.todolist.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// The big lists of the admin: the array is written while the rows are read from the cursor of the db
+// the first bytes go out before the last row is read, and the memory is the buffer of the generator (not the whole list)
+// in the format of the Accept header like the other responses (JSON, CBOR or Smile)
+// each stream holds a connection until its last row: it takes a permit of the admin budget (AsyncConfig) or it's rejected
+@Component
+class StreamingArrayWriter {
+    private static final String PERMIT_INTERCEPTOR = StreamingArrayWriter.class.getName() + ".permit";
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jsonConverter;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @Autowired
+    @Qualifier("adminPermits")
+    private Semaphore adminPermits;
+
+    // source: calls the consumer with each row (e.g. taskService::streamAllTasks), in the thread of the response
+    <T> ResponseEntity<StreamingResponseBody> ok(String etag, String accept, WebRequest webRequest, Consumer<Consumer<T>> source) {
+        AbstractJackson2HttpMessageConverter converter = negotiate(accept);
+        ObjectMapper objectMapper = converter.getObjectMapper();
+        // without a flush by row: the generator writes when its buffer is full
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        // before the cursor is opened, in the thread of the request: the 503 is sent before the headers of the list
+        if (!adminPermits.tryAcquire()) {
+            throw new RejectedExecutionException("All the admin permits are in use");
+        }
+        Runnable release = releaseOnce();
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager((NativeWebRequest) webRequest);
+        // the body can never run (async timeout while it waits for a thread, executor full): released at the end of the request
+        asyncManager.registerCallableInterceptor(PERMIT_INTERCEPTOR, new CallableProcessingInterceptor() {
+            @Override
+            public <V> void afterCompletion(NativeWebRequest request, Callable<V> task) {
+                release.run();
+            }
+        });
+        // the async processing couldn't start (e.g. a sub-request of a batch): released at the end of the dispatch
+        RequestContextHolder.currentRequestAttributes().registerDestructionCallback(PERMIT_INTERCEPTOR, () -> {
+            if (!asyncManager.isConcurrentHandlingStarted()) {
+                release.run();
+            }
+        }, RequestAttributes.SCOPE_REQUEST);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                // Spring flushes and closes the response
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                source.accept(row -> {
+                    try {
+                        writer.writeValue(generator, row);
+                    } catch (IOException e) {
+                        // the client closed the connection: stops the cursor
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            } finally {
+                release.run();
+            }
+        };
+        return ResponseEntity.ok().eTag(etag).contentType(converter.getSupportedMediaTypes().get(0)).body(body);
+    }
+
+    private Runnable releaseOnce() {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                adminPermits.release();
+            }
+        };
+    }
+
+    // the first type of the Accept header (by quality) that one of the formats writes, JSON by default
+    private AbstractJackson2HttpMessageConverter negotiate(String accept) {
+        if (accept == null) {
+            return jsonConverter;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return jsonConverter;
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType mediaType : accepted) {
+            for (AbstractJackson2HttpMessageConverter converter : List.of(jsonConverter, cborConverter, smileConverter)) {
+                if (converter.getSupportedMediaTypes().stream().anyMatch(mediaType::isCompatibleWith)) {
+                    return converter;
+                }
+            }
+        }
+        return jsonConverter;
+    }
+}
@@ -0,0 +1,219 @@
+package com.mindhub.todolist.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindhub.todolist.config.JwtHandshakeInterceptor;
+import com.mindhub.todolist.config.RateLimitFilter;
+import com.mindhub.todolist.dtos.SyncOperationResult;
+import com.mindhub.todolist.dtos.TaskChangeType;
+import com.mindhub.todolist.dtos.TaskEventDTO;
+import com.mindhub.todolist.dtos.TaskSocketMessage;
+import com.mindhub.todolist.dtos.TaskSocketRequest;
+import com.mindhub.todolist.services.TaskEventBus;
+import com.mindhub.todolist.services.TaskService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// WebSocket of the tasks (/ws/tasks): pushes the changes of the tasks of the user
+// and receives operations (the same as the sync), each message with a token of the rate limit of the user
+// The changes of the same task inside the window are sent once (the last one)
+@Component
+public class TaskWebSocketHandler extends TextWebSocketHandler {
+    private static final Logger logger = LoggerFactory.getLogger(TaskWebSocketHandler.class);
+
+    // attribute of the session with its state
+    private static final String STATE = "taskSocketState";
+
+    @Autowired
+    private TaskEventBus taskEventBus;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // the messages don't go through the filters: the same bucket as the requests of the user
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    // window (ms) where the changes are coalesced before sending them
+    @Value("${todolist.websocket.coalesce-window:200}")
+    private long coalesceWindow;
+
+    // a client that doesn't read its messages is disconnected (it reconnects and uses the delta sync)
+    @Value("${todolist.websocket.send-time-limit:10000}")
+    private int sendTimeLimit;
+
+    @Value("${todolist.websocket.send-buffer-limit:524288}")
+    private int sendBufferLimit;
+
+    // one thread for all the sessions: it only sends the coalesced events
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-ws-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        Long userId = (Long) session.getAttributes().get(JwtHandshakeInterceptor.USER_ID);
+        SessionState state = new SessionState(new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, sendBufferLimit));
+        session.getAttributes().put(STATE, state);
+        state.subscription = taskEventBus.subscribe(userId, state::add);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        SessionState state = (SessionState) session.getAttributes().get(STATE);
+        Long userId = (Long) session.getAttributes().get(JwtHandshakeInterceptor.USER_ID);
+        String username = (String) session.getAttributes().get(JwtHandshakeInterceptor.USERNAME);
+        // before reading it: a flood of messages doesn't reach the DB (the client retries after the wait)
+        long waitNanos = rateLimitFilter.tryAcquire("user", RateLimitFilter.userKey(username));
+        if (waitNanos > 0) {
+            state.send(TaskSocketMessage.error(null, "Too many requests, try again in "
+                    + RateLimitFilter.retryAfterSeconds(waitNanos) + " seconds"));
+            return;
+        }
+        TaskSocketRequest request;
+        try {
+            request = objectMapper.readValue(message.getPayload(), TaskSocketRequest.class);
+        } catch (JsonProcessingException e) {
+            state.send(TaskSocketMessage.error(null, "Invalid message: " + e.getOriginalMessage()));
+            return;
+        }
+        if (request.operations() == null || request.operations().isEmpty()) {
+            state.send(TaskSocketMessage.error(request.requestId(), "Operations are required"));
+            return;
+        }
+        try {
+            // the changes are also pushed to the other connections of the user (after the commit)
+            List<SyncOperationResult> results = taskService.syncTasks(userId, request.operations());
+            state.send(TaskSocketMessage.results(request.requestId(), results));
+        } catch (IllegalArgumentException e) {
+            state.send(TaskSocketMessage.error(request.requestId(), "Invalid data provided: " + e.getMessage()));
+        } catch (RuntimeException e) {
+            logger.error("Error applying the operations of the user " + userId, e);
+            state.send(TaskSocketMessage.error(request.requestId(), "An unexpected error occurred"));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        SessionState state = (SessionState) session.getAttributes().remove(STATE);
+        if (state != null) {
+            state.close();
+        }
+    }
+
+    private class SessionState {
+        private final WebSocketSession session;
+        private TaskEventBus.Subscription subscription;
+        // created with the first event of a burst: an idle connection only has the session and the subscription
+        private Map<Long, TaskEventDTO> pending;
+        private boolean resync;
+        private ScheduledFuture<?> flush;
+        private boolean closed;
+
+        SessionState(WebSocketSession session) {
+            this.session = session;
+        }
+
+        // thread of the bus
+        synchronized void add(TaskEventDTO event) {
+            if (closed) {
+                return;
+            }
+            if (event.type() == TaskChangeType.RESYNC) {
+                // the client gets everything with the delta sync
+                pending = null;
+                resync = true;
+            } else {
+                if (pending == null) {
+                    pending = new LinkedHashMap<>();
+                }
+                // removed and put again: the events are sent in the order of their changeSeq
+                // (the client uses the last one it received as the cursor of its delta sync)
+                pending.put(event.taskId(), coalesce(pending.remove(event.taskId()), event));
+            }
+            if (flush == null) {
+                flush = flusher.schedule(this::flush, coalesceWindow, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        // a task created and updated inside the window is still new for the client
+        private TaskEventDTO coalesce(TaskEventDTO previous, TaskEventDTO event) {
+            if (previous != null && previous.type() == TaskChangeType.CREATED && event.type() == TaskChangeType.UPDATED) {
+                return new TaskEventDTO(TaskChangeType.CREATED, event.taskId(), event.changeSeq(), event.task());
+            }
+            return event;
+        }
+
+        private void flush() {
+            List<TaskEventDTO> events = new ArrayList<>();
+            synchronized (this) {
+                if (resync) {
+                    events.add(TaskEventDTO.resync());
+                }
+                if (pending != null) {
+                    events.addAll(pending.values());
+                }
+                pending = null;
+                resync = false;
+                flush = null;
+            }
+            if (!events.isEmpty()) {
+                send(TaskSocketMessage.events(events));
+            }
+        }
+
+        void send(TaskSocketMessage message) {
+            try {
+                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+            } catch (Exception e) {
+                // closed or too slow (the decorator closes the session)
+                logger.debug("Message to the WebSocket {} not sent: {}", session.getId(), e.getMessage());
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            pending = null;
+            if (flush != null) {
+                flush.cancel(false);
+            }
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+}
@@ -2,26 +2,37 @@ package com.mindhub.todolist.controllers;
 
 import com.mindhub.todolist.dtos.EntityUserDTO;
 import com.mindhub.todolist.dtos.NewTask;
+import com.mindhub.todolist.dtos.SyncOperationResult;
+import com.mindhub.todolist.dtos.SyncRequest;
+import com.mindhub.todolist.dtos.TaskBatchDTO;
+import com.mindhub.todolist.dtos.TaskChangesDTO;
 import com.mindhub.todolist.dtos.TaskDTO;
+import com.mindhub.todolist.dtos.TaskField;
+import com.mindhub.todolist.dtos.TaskPatch;
+import com.mindhub.todolist.exceptions.ForbiddenException;
 import com.mindhub.todolist.models.RoleType;
+import com.mindhub.todolist.models.TaskStatus;
 import com.mindhub.todolist.services.EntityUserService;
+import com.mindhub.todolist.services.TaskCounterService;
+import com.mindhub.todolist.services.TaskEventBus;
 import com.mindhub.todolist.services.TaskService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
-import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 // TaskController: for "USER"
 @RestController
@@ -33,57 +44,141 @@ public class UserTaskController {
     @Autowired
     private EntityUserService entityUserService;
 
-    private Long getAuthenticatedUserId(Authentication authentication) {
-        EntityUserDTO user = entityUserService.getEntityUserDTOByEmail(authentication.getName());
-        return user.getId();
-    }
+    @Autowired
+    private TaskCounterService taskCounterService;
 
-    // Validate errors
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    @ExceptionHandler(MethodArgumentNotValidException.class)
-    public Map<String, String> handleValidationExceptions(MethodArgumentNotValidException ex) {
-        Map<String, String> errors = new HashMap<>();
-        ex.getBindingResult().getFieldErrors().forEach(error -> {
-            String fieldName = error.getField();
-            String errorMessage = error.getDefaultMessage();
-            errors.put(fieldName, errorMessage);
-        });
-        return errors;
-    }
-    // Validate business exceptions
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    @ExceptionHandler(EntityNotFoundException.class)
-    public Map<String, String> handleEntityNotFound(EntityNotFoundException ex) {
-        Map<String, String> error = new HashMap<>();
-        error.put("error", ex.getMessage());
-        return error;
-    }
+    @Autowired
+    private TaskEventBus taskEventBus;
 
-    // Validate general exceptions
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-    @ExceptionHandler(Exception.class)
-    public Map<String, String> handleGeneralExceptions(Exception ex) {
-        Map<String, String> error = new HashMap<>();
-        error.put("error", "An unexpected error occurred: " + ex.getMessage());
-        return error;
+    // the client reconnects after the timeout (ms)
+    @Value("${todolist.events.stream-timeout:1800000}")
+    private long streamTimeout;
+
+    private Long getAuthenticatedUserId(Authentication authentication) {
+        return entityUserService.getEntityUserIdByEmail(authentication.getName());
     }
 
     // User's endpoints
     // User's tasks
-    @Operation(summary = "Get all user's tasks (user logged in)", description = "Return all tasks associated with the user (logged in)")
+    @Operation(summary = "Get all user's tasks (user logged in)", description = "Return all tasks associated with the user (logged in), without the descriptions (see /api/user/tasks/{id}). " +
+            "fields (optional): only these fields of each task, e.g. fields=id,title,status. " +
+            "status (optional): only the tasks of this status (without fields)")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Tasks retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Tasks not modified (If-None-Match)"),
             @ApiResponse(responseCode = "404", description = "Tasks not found"),
             @ApiResponse(responseCode = "400", description = "Invalid input data")
     })
     @GetMapping("/user/tasks/my-tasks")
-    public ResponseEntity<List<TaskDTO>> getOwnTasks(Authentication authentication) {
-        List<TaskDTO> tasks = taskService.getAllTasksById(getAuthenticatedUserId(authentication));
-        return new ResponseEntity<>(tasks, HttpStatus.OK);
+    public ResponseEntity<?> getOwnTasks(@RequestParam(required = false) String fields, @RequestParam(required = false) TaskStatus status,
+                                         Authentication authentication, WebRequest webRequest) {
+        Set<TaskField> taskFields = TaskField.parse(fields);
+        if (taskFields != null && status != null) {
+            throw new IllegalArgumentException("status can't be combined with fields");
+        }
+        Long userId = getAuthenticatedUserId(authentication);
+        // the version is read before the tasks: if a change enters in between, the next request downloads again
+        String etag = "\"tasks-" + userId + "-" + taskCounterService.getVersion(userId) + TaskField.etagSuffix(taskFields)
+                + (status != null ? "-" + status : "") + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304, without loading the tasks
+        }
+        // fields: only those columns are queried (e.g. a board without the descriptions)
+        // status: filtered in memory (read model) when the user is there
+        Object tasks = taskFields != null ? taskService.getTaskFieldsByUserId(userId, taskFields)
+                : status != null ? taskService.getTasksByStatus(userId, status) : taskService.getAllTasksById(userId);
+        return ResponseEntity.ok().eTag(etag).body(tasks);
+    }
+
+    // Multi-get: a set of the user's tasks in one request (e.g. from notifications)
+    @Operation(summary = "Get a set of user's tasks by ID (user logged in)", description = "Return the tasks of the ids (ids=1,2,3) in one query. " +
+            "The ids not found or of another user are returned in missing")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tasks retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data")
+    })
+    @GetMapping(value = "/user/tasks", params = "ids")
+    public ResponseEntity<TaskBatchDTO> getOwnTasksByIds(@RequestParam List<Long> ids, Authentication authentication) {
+        TaskBatchDTO batch = taskService.getTasksByIds(ids, getAuthenticatedUserId(authentication));
+        return new ResponseEntity<>(batch, HttpStatus.OK);
+    }
+
+    // Detail: the task with its description (the lists only have the summaries)
+    @Operation(summary = "Get a user's task by ID (user logged in)", description = "Return the task with its description. " +
+            "fields (optional): only these fields, e.g. fields=id,description")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Task retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Task not modified (If-None-Match)"),
+            @ApiResponse(responseCode = "403", description = "Task of another user"),
+            @ApiResponse(responseCode = "404", description = "Task not found")
+    })
+    @GetMapping("/user/tasks/{id}")
+    public ResponseEntity<?> getOwnTask(@PathVariable Long id, @RequestParam(required = false) String fields,
+                                        Authentication authentication, WebRequest webRequest) {
+        Set<TaskField> taskFields = TaskField.parse(fields);
+        if(!taskService.isTaskOwner(id, authentication.getName())) {
+            throw new ForbiddenException("You don't have permission to see this task");
+        }
+        // same ETag as the detail of the admin
+        String etag = "\"task-" + id + "-" + taskService.getTaskVersion(id) + TaskField.etagSuffix(taskFields) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304
+        }
+        Object task = taskFields == null ? taskService.getTaskDTOById(id) : taskService.getTaskFieldsById(id, taskFields);
+        return ResponseEntity.ok().eTag(etag).body(task);
+    }
+
+    // Delta sync: only the changes after the cursor of the client
+    @Operation(summary = "Get the changes of the user's tasks (user logged in)", description = "Return the tasks created or updated and the ids of the tasks deleted after the cursor (since). " +
+            "Use the returned cursor in the next request. If reset is true, replace all the tasks with the changed ones")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Changes retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data")
+    })
+    @GetMapping("/user/tasks/changes")
+    public ResponseEntity<TaskChangesDTO> getOwnTaskChanges(@RequestParam(defaultValue = "0") long since, Authentication authentication) {
+        TaskChangesDTO changes = taskService.getTaskChanges(getAuthenticatedUserId(authentication), since);
+        return new ResponseEntity<>(changes, HttpStatus.OK);
+    }
+
+    // Push of the changes of the tasks (Server-Sent Events), replaces the polling of my-tasks
+    @Operation(summary = "Stream the changes of the user's tasks (user logged in)", description = "Server-Sent Events with the tasks CREATED, UPDATED and DELETED after the commit (without the descriptions). " +
+            "RESYNC: events were lost, use /api/user/tasks/changes with your last cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream opened")
+    })
+    @GetMapping(value = "/user/tasks/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOwnTasks(Authentication authentication) {
+        SseEmitter emitter = new SseEmitter(streamTimeout);
+        // the id of the event is the sequence of the change (cursor of the delta sync)
+        TaskEventBus.Subscription subscription = taskEventBus.subscribe(getAuthenticatedUserId(authentication), event ->
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.changeSeq()))
+                        .name(event.type().name())
+                        .data(event, MediaType.APPLICATION_JSON)));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    // Offline-first: the operations queued by the client in one request
+    @Operation(summary = "Sync the user's tasks (user logged in)", description = "Apply in order and in one transaction the operations (CREATE, UPDATE, DELETE) queued by the client. " +
+            "Return a result by operation: APPLIED, CONFLICT (the task changed after the base version), NOT_FOUND, FORBIDDEN or INVALID. " +
+            "Accepts an Idempotency-Key header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Operations processed"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data")
+    })
+    @PostMapping("/user/tasks/sync")
+    public ResponseEntity<?> syncOwnTasks(@Valid @RequestBody SyncRequest syncRequest, Authentication authentication) {
+        List<SyncOperationResult> results = taskService.syncTasks(getAuthenticatedUserId(authentication), syncRequest.operations());
+        return new ResponseEntity<>(results, HttpStatus.OK);
     }
 
     // User can create own tasks
-    @Operation(summary="Create a task (user logged in)", description = "Create a new task for the user (logged in)")
+    @Operation(summary="Create a task (user logged in)", description = "Create a new task for the user (logged in). " +
+            "With an Idempotency-Key header a retry returns the first response instead of creating the task again")
     @ApiResponses(value= {
             @ApiResponse(responseCode = "201", description = "Task created successfully"),
             @ApiResponse(responseCode = "404", description = "Invalid input data"),
@@ -91,49 +186,56 @@ public class UserTaskController {
     })
     @PostMapping("/user")
     public ResponseEntity<?> createOwnTask(@Valid @RequestBody NewTask newTask, Authentication authentication) {
-        try {
-            taskService.createNewTask(getAuthenticatedUserId(authentication), newTask);
-            return new ResponseEntity<>("Task created successfully", HttpStatus.CREATED);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
-        }
+        taskService.createNewTask(getAuthenticatedUserId(authentication), newTask);
+        return new ResponseEntity<>("Task created successfully", HttpStatus.CREATED);
     }
 
     @Operation(summary = "Update a task (user logged in)", description = "Update a task by its ID")
     @ApiResponses(value= {
             @ApiResponse(responseCode = "201", description = "Task updated successfully"),
+            @ApiResponse(responseCode = "403", description = "Task of another user"),
             @ApiResponse(responseCode = "404", description = "Task not found"),
             @ApiResponse(responseCode = "400", description = "Invalid input data")
     })
     @PutMapping("/user/tasks/{id}") //@PreAuthorize("@taskService.isTaskOwner(#id, authentication.name)") -> this: @EnableMethodSecurity (in SecurityConfig) enables @PreAuthorize
     public ResponseEntity<?> updateOwnTask(@PathVariable Long id, @Valid @RequestBody TaskDTO updatedTask, Authentication authentication) {
-        try {
-            if(!taskService.isTaskOwner(id, authentication.getName())) {
-                return new ResponseEntity<>("You don't have permission to update this task", HttpStatus.FORBIDDEN);
-            }
-            taskService.updateTask(id, updatedTask);
-            return new ResponseEntity<>("Task updated successfully", HttpStatus.OK);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        if(!taskService.isTaskOwner(id, authentication.getName())) {
+            throw new ForbiddenException("You don't have permission to update this task");
+        }
+        taskService.updateTask(id, updatedTask);
+        return new ResponseEntity<>("Task updated successfully", HttpStatus.OK);
+    }
+
+    // Partial update: only the fields sent (JSON Merge Patch)
+    @Operation(summary = "Patch a task (user logged in)", description = "Update only the fields sent (JSON Merge Patch), e.g. {\"status\":\"COMPLETED\"}. " +
+            "Return the task with its new version (the description only if it was sent)")
+    @ApiResponses(value= {
+            @ApiResponse(responseCode = "200", description = "Task updated successfully"),
+            @ApiResponse(responseCode = "403", description = "Task of another user"),
+            @ApiResponse(responseCode = "404", description = "Task not found"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data")
+    })
+    @PatchMapping(value = "/user/tasks/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<TaskDTO> patchOwnTask(@PathVariable Long id, @Valid @RequestBody TaskPatch patch, Authentication authentication) {
+        if(!taskService.isTaskOwner(id, authentication.getName())) {
+            throw new ForbiddenException("You don't have permission to update this task");
         }
+        return new ResponseEntity<>(taskService.patchTask(id, patch), HttpStatus.OK);
     }
 
     @Operation(summary = "Delete a task (user logged in)", description = "Delete a task by its ID")
     @ApiResponses(value= {
             @ApiResponse(responseCode = "201", description = "Task deleted successfully"),
+            @ApiResponse(responseCode = "403", description = "Task of another user"),
             @ApiResponse(responseCode = "404", description = "Task not found"),
             @ApiResponse(responseCode = "400", description = "Invalid input data")
     })
     @DeleteMapping("/user/tasks/{id}")
     public ResponseEntity<?> deleteOwnTask(@PathVariable Long id, Authentication authentication) {
-        try {
-            if(!taskService.isTaskOwner(id, authentication.getName())) {
-                return new ResponseEntity<>("You don't have permission to delete this task", HttpStatus.FORBIDDEN);
-            }
-            taskService.deleteTask(id);
-            return new ResponseEntity<>("Task deleted successfully", HttpStatus.OK);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        if(!taskService.isTaskOwner(id, authentication.getName())) {
+            throw new ForbiddenException("You don't have permission to delete this task");
         }
+        taskService.deleteTask(id);
+        return new ResponseEntity<>("Task deleted successfully", HttpStatus.OK);
     }
 }
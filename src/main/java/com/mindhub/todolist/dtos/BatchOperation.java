@@ -0,0 +1,29 @@
+package com.mindhub.todolist.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+import java.util.List;
+import java.util.Map;
+
+// A sub-request of a batch, e.g. {"method":"GET","path":"/api/user/tasks/my-tasks"}
+// path: an endpoint of the api with its query (not another batch)
+// headers: optional, a value or a list of values, e.g. If-None-Match
+// body: the JSON of a POST, PUT or PATCH
+public record BatchOperation(
+        @NotBlank(message = "Method is required")
+        @Pattern(regexp = "GET|POST|PUT|PATCH|DELETE", message = "Method must be GET, POST, PUT, PATCH or DELETE")
+        String method,
+
+        @NotBlank(message = "Path is required")
+        @Pattern(regexp = "^/api/(?!batch)(?!.*\\.\\.)[\\w\\-./]*(\\?[^#]*)?$", message = "Path must be an endpoint of the api")
+        String path,
+
+        @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+        Map<String, List<String>> headers,
+
+        JsonNode body
+) {
+}
@@ -0,0 +1,13 @@
+package com.mindhub.todolist.dtos;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+// The sub-requests of a batch: the reads (GET) next to each other run in parallel, the writes in order
+public record BatchRequest(
+        @NotEmpty(message = "Requests are required")
+        List<@Valid BatchOperation> requests
+) {
+}
@@ -0,0 +1,16 @@
+package com.mindhub.todolist.dtos;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+
+// The response of a sub-request, in the position of its request
+// body: the JSON of the response (a text if it isn't JSON, null if empty)
+public record BatchResult(
+        int status,
+
+        Map<String, String> headers,
+
+        JsonNode body
+) {
+}
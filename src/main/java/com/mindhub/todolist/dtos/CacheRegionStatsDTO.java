@@ -0,0 +1,16 @@
+package com.mindhub.todolist.dtos;
+
+// Counters of a region of the second-level cache since the start of the app
+public record CacheRegionStatsDTO(
+        String region,
+
+        long hits,
+
+        long misses,
+
+        long puts,
+
+        // hits / (hits + misses), 0 without reads
+        double hitRatio
+) {
+}
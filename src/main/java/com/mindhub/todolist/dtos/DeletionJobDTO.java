@@ -0,0 +1,76 @@
+package com.mindhub.todolist.dtos;
+
+import com.mindhub.todolist.models.DeletionJob;
+import com.mindhub.todolist.models.DeletionStatus;
+
+import java.time.LocalDateTime;
+
+// Progress of a user deletion (for the admins)
+public class DeletionJobDTO {
+    private final Long id;
+
+    private final Long userId;
+
+    private final String email;
+
+    private final DeletionStatus status;
+
+    private final long totalTasks;
+
+    private final long deletedTasks;
+
+    private final String error;
+
+    private final LocalDateTime requestedAt;
+
+    private final LocalDateTime finishedAt;
+
+    // Constructor
+    public DeletionJobDTO(DeletionJob deletionJob) {
+        id = deletionJob.getId();
+        userId = deletionJob.getUserId();
+        email = deletionJob.getEmail();
+        status = deletionJob.getStatus();
+        totalTasks = deletionJob.getTotalTasks();
+        deletedTasks = deletionJob.getDeletedTasks();
+        error = deletionJob.getError();
+        requestedAt = deletionJob.getRequestedAt();
+        finishedAt = deletionJob.getFinishedAt();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public DeletionStatus getStatus() {
+        return status;
+    }
+
+    public long getTotalTasks() {
+        return totalTasks;
+    }
+
+    public long getDeletedTasks() {
+        return deletedTasks;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public LocalDateTime getRequestedAt() {
+        return requestedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+}
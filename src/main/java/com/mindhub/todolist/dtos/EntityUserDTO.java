@@ -27,7 +27,8 @@ public class EntityUserDTO {
     @Email(message = "Email must be valid")
     private String email;
 
-    private List<TaskDTO> tasks;
+    // summaries: the descriptions of the tasks aren't loaded
+    private List<TaskSummaryDTO> tasks;
 
     private RoleType role;
 
@@ -42,10 +43,19 @@ public class EntityUserDTO {
         tasks = entityUser // Object type EntityUser
                 .getTasks() // Set<Task>
                 .stream() // Stream<Task>
-                .map(task -> new TaskDTO(task)) // Stream<TaskDTO> Function Lambda
-                .toList(); // List<TaskDTO>
+                .map(task -> new TaskSummaryDTO(task)) // Stream<TaskSummaryDTO> Function Lambda
+                .toList(); // List<TaskSummaryDTO>
         role = entityUser.getRole();
     }
+
+    // From the rows of a query (the stream of the users), with its tasks already read
+    public EntityUserDTO(Long id, String username, String email, RoleType role, List<TaskSummaryDTO> tasks) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.tasks = tasks;
+        this.role = role;
+    }
     // .map( TaskDTO::new ) Short form - Function Lambda
     // .map(task -> {
     //          System.out.println("test");
@@ -68,7 +78,7 @@ public class EntityUserDTO {
         return email;
     }
 
-    public List<TaskDTO> getTasks() {
+    public List<TaskSummaryDTO> getTasks() {
         return tasks;
     }
 
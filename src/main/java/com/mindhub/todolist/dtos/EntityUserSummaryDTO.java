@@ -0,0 +1,64 @@
+package com.mindhub.todolist.dtos;
+
+import com.mindhub.todolist.models.EntityUser;
+import com.mindhub.todolist.models.RoleType;
+import com.mindhub.todolist.models.TaskStatus;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Like EntityUserDTO but with the counts by status instead of the tasks
+// the size of the response doesn't depend on the number of tasks
+public class EntityUserSummaryDTO {
+    private final Long id;
+
+    private final String username;
+
+    private final String email;
+
+    private final RoleType role;
+
+    private final long totalTasks;
+
+    private final Map<TaskStatus, Long> tasksByStatus = new EnumMap<>(TaskStatus.class);
+
+    // Constructor
+    public EntityUserSummaryDTO(EntityUser entityUser, Map<TaskStatus, Long> counts) {
+        id = entityUser.getId();
+        username = entityUser.getUsername();
+        email = entityUser.getEmail();
+        role = entityUser.getRole();
+        // every status is in the response (0 if the user doesn't have tasks with it)
+        long total = 0;
+        for (TaskStatus status : TaskStatus.values()) {
+            long count = counts.getOrDefault(status, 0L);
+            tasksByStatus.put(status, count);
+            total += count;
+        }
+        totalTasks = total;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public RoleType getRole() {
+        return role;
+    }
+
+    public long getTotalTasks() {
+        return totalTasks;
+    }
+
+    public Map<TaskStatus, Long> getTasksByStatus() {
+        return tasksByStatus;
+    }
+}
@@ -0,0 +1,27 @@
+package com.mindhub.todolist.dtos;
+
+import com.mindhub.todolist.models.RoleType;
+import com.mindhub.todolist.models.TaskStatus;
+
+// A row of the stream of the users (select new): the user and one of its tasks (null: without tasks or not queried)
+public record EntityUserTaskRow(
+        Long userId,
+
+        String username,
+
+        String email,
+
+        RoleType role,
+
+        TaskSummaryDTO task
+) {
+    public EntityUserTaskRow(Long userId, String username, String email, RoleType role,
+                             Long taskId, String title, TaskStatus status, Long version, String clientId) {
+        this(userId, username, email, role, taskId == null ? null : new TaskSummaryDTO(taskId, title, status, version, clientId));
+    }
+
+    // only the user
+    public EntityUserTaskRow(Long userId, String username, String email, RoleType role) {
+        this(userId, username, email, role, null);
+    }
+}
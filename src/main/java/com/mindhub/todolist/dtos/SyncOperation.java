@@ -0,0 +1,22 @@
+package com.mindhub.todolist.dtos;
+
+import jakarta.validation.constraints.NotNull;
+
+// An operation queued by the client while offline
+// clientId: id generated by the client, a CREATE replayed with the same clientId is applied once
+// taskId or clientId: the task of the UPDATE or DELETE (clientId if the client doesn't know the id yet)
+// baseVersion: version of the task that the client edited, if it changed the result is CONFLICT (null: without check)
+// task: the data of the CREATE or UPDATE
+public record SyncOperation(
+        @NotNull(message = "Operation type is required")
+        SyncOperationType type,
+
+        String clientId,
+
+        Long taskId,
+
+        Long baseVersion,
+
+        NewTask task
+) {
+}
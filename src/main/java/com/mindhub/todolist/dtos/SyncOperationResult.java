@@ -0,0 +1,24 @@
+package com.mindhub.todolist.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// index: position of the operation in the request
+// version: version of the task after the operation (base version of the next edit)
+// task: the current task of the server (CONFLICT)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SyncOperationResult(
+        int index,
+
+        String clientId,
+
+        Long taskId,
+
+        SyncResultStatus status,
+
+        Long version,
+
+        String message,
+
+        TaskDTO task
+) {
+}
@@ -0,0 +1,8 @@
+package com.mindhub.todolist.dtos;
+
+// Operations that an offline client can replay with the sync
+public enum SyncOperationType {
+    CREATE,
+    UPDATE,
+    DELETE
+}
@@ -0,0 +1,13 @@
+package com.mindhub.todolist.dtos;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+// The operations are applied in order, in one transaction
+public record SyncRequest(
+        @NotEmpty(message = "Operations are required")
+        List<@Valid SyncOperation> operations
+) {
+}
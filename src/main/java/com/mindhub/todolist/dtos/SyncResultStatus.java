@@ -0,0 +1,11 @@
+package com.mindhub.todolist.dtos;
+
+// Result of every operation of the sync
+public enum SyncResultStatus {
+    APPLIED,
+    // the task changed after the base version of the client: the result has the current task
+    CONFLICT,
+    NOT_FOUND,
+    FORBIDDEN,
+    INVALID
+}
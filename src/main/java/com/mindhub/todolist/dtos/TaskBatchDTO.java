@@ -0,0 +1,12 @@
+package com.mindhub.todolist.dtos;
+
+import java.util.List;
+
+// Multi-get: the tasks found (in the order of the ids) and the ids without a task
+// for a user, the tasks of other users are missing too
+public record TaskBatchDTO(
+        List<TaskDTO> tasks,
+
+        List<Long> missing
+) {
+}
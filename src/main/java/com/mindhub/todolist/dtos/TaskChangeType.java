@@ -0,0 +1,10 @@
+package com.mindhub.todolist.dtos;
+
+// Type of the events of the tasks pushed to the clients
+// RESYNC: the client was too slow and lost events, it has to use the delta sync (/api/user/tasks/changes)
+public enum TaskChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    RESYNC
+}
@@ -0,0 +1,17 @@
+package com.mindhub.todolist.dtos;
+
+import java.util.List;
+
+// Delta sync: the changes of the tasks of a user after a cursor
+// cursor: the "since" of the next request
+// reset: the client has to replace its tasks with "changed" (first sync or cursor too old)
+public record TaskChangesDTO(
+        long cursor,
+
+        boolean reset,
+
+        List<TaskDTO> changed,
+
+        List<Long> deleted
+) {
+}
@@ -1,6 +1,7 @@
 package com.mindhub.todolist.dtos;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.mindhub.todolist.models.EntityUser;
 import com.mindhub.todolist.models.Task;
@@ -17,12 +18,21 @@ public class TaskDTO {
     @NotBlank(message = "Title is required")
     private String title;
 
+    // null in the response of a PATCH without description: not in the JSON
     @NotBlank(message = "Description is required")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String description;
 
     @NotNull(message = "Task status is required and cannot be null")
     private TaskStatus status;
 
+    // version of the task: the base version of the sync operations
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String clientId;
+
     //private EntityUser user;
 
     // Constructor
@@ -31,6 +41,18 @@ public class TaskDTO {
         title = task.getTitle();
         description = task.getDescription();
         status = task.getStatus();
+        version = task.getVersion();
+        clientId = task.getClientId();
+    }
+
+    // From a query (select new): the description without loading the entity
+    public TaskDTO(Long id, String title, String description, TaskStatus status, Long version, String clientId) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.status = status;
+        this.version = version;
+        this.clientId = clientId;
     }
 
     // Empty Constructor
@@ -56,5 +78,13 @@ public class TaskDTO {
         return description;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
     //public EntityUser getUser() { return user; }
 }
@@ -0,0 +1,21 @@
+package com.mindhub.todolist.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Event of a task pushed to the clients (SSE)
+// changeSeq: same sequence as the delta sync, the client can use it as its cursor
+// task: null for DELETED and RESYNC, without the description like the lists (it isn't loaded after the commit)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TaskEventDTO(
+        TaskChangeType type,
+
+        Long taskId,
+
+        long changeSeq,
+
+        TaskSummaryDTO task
+) {
+    public static TaskEventDTO resync() {
+        return new TaskEventDTO(TaskChangeType.RESYNC, null, 0, null);
+    }
+}
@@ -0,0 +1,36 @@
+package com.mindhub.todolist.dtos;
+
+import com.mindhub.todolist.utils.SparseFields;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// The fields of a task that can be selected (fields=id,title,status)
+// name: the key in the JSON and the attribute of the entity (only these columns are queried)
+public enum TaskField {
+    ID("id"),
+    TITLE("title"),
+    DESCRIPTION("description"),
+    STATUS("status"),
+    VERSION("version"),
+    CLIENT_ID("clientId");
+
+    private final String name;
+
+    TaskField(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // null if the parameter wasn't sent
+    public static EnumSet<TaskField> parse(String fields) {
+        return SparseFields.parse(fields, TaskField.class, TaskField::getName);
+    }
+
+    public static String etagSuffix(Set<TaskField> fields) {
+        return SparseFields.etagSuffix(fields, TaskField::getName);
+    }
+}
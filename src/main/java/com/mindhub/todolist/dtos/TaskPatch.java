@@ -0,0 +1,17 @@
+package com.mindhub.todolist.dtos;
+
+import com.mindhub.todolist.models.TaskStatus;
+import jakarta.validation.constraints.Pattern;
+
+// JSON Merge Patch of a task: only the fields sent are changed, e.g. {"status":"COMPLETED"}
+// null or absent: not changed (the fields of a task can't be removed)
+public record TaskPatch(
+        @Pattern(regexp = "(?s).*\\S.*", message = "Title can't be blank")
+        String title,
+
+        @Pattern(regexp = "(?s).*\\S.*", message = "Description can't be blank")
+        String description,
+
+        TaskStatus status
+) {
+}
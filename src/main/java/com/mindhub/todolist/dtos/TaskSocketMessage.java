@@ -0,0 +1,38 @@
+package com.mindhub.todolist.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Message of the server in the WebSocket
+// EVENTS: the changes of the tasks of the user (coalesced), RESULTS: results of the operations of a request
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TaskSocketMessage(
+        Type type,
+
+        String requestId,
+
+        List<TaskEventDTO> events,
+
+        List<SyncOperationResult> results,
+
+        String error
+) {
+    public enum Type {
+        EVENTS,
+        RESULTS,
+        ERROR
+    }
+
+    public static TaskSocketMessage events(List<TaskEventDTO> events) {
+        return new TaskSocketMessage(Type.EVENTS, null, events, null, null);
+    }
+
+    public static TaskSocketMessage results(String requestId, List<SyncOperationResult> results) {
+        return new TaskSocketMessage(Type.RESULTS, requestId, null, results, null);
+    }
+
+    public static TaskSocketMessage error(String requestId, String error) {
+        return new TaskSocketMessage(Type.ERROR, requestId, null, null, error);
+    }
+}
@@ -0,0 +1,12 @@
+package com.mindhub.todolist.dtos;
+
+import java.util.List;
+
+// Message of a client in the WebSocket: the same operations as the sync (/api/user/tasks/sync)
+// requestId: generated by the client, returned with the results
+public record TaskSocketRequest(
+        String requestId,
+
+        List<SyncOperation> operations
+) {
+}
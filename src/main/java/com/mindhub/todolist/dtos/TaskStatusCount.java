@@ -0,0 +1,11 @@
+package com.mindhub.todolist.dtos;
+
+import com.mindhub.todolist.models.TaskStatus;
+
+// Result of the grouped query: how many tasks have a status
+public record TaskStatusCount(
+        TaskStatus status,
+
+        long total
+) {
+}
@@ -0,0 +1,22 @@
+package com.mindhub.todolist.dtos;
+
+import com.mindhub.todolist.models.Task;
+import com.mindhub.todolist.models.TaskStatus;
+
+// A task in the lists: without the description (the detail has it, GET /api/user/tasks/{id})
+public record TaskSummaryDTO(
+        Long id,
+
+        String title,
+
+        TaskStatus status,
+
+        Long version,
+
+        String clientId
+) {
+    // doesn't read the description (lazy): it isn't loaded
+    public TaskSummaryDTO(Task task) {
+        this(task.getId(), task.getTitle(), task.getStatus(), task.getVersion(), task.getClientId());
+    }
+}
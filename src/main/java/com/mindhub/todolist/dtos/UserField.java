@@ -0,0 +1,35 @@
+package com.mindhub.todolist.dtos;
+
+import com.mindhub.todolist.utils.SparseFields;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// The fields of a user that can be selected (fields=id,username,email)
+// without "tasks" the tasks of the user aren't loaded
+public enum UserField {
+    ID("id"),
+    USERNAME("username"),
+    EMAIL("email"),
+    ROLE("role"),
+    TASKS("tasks");
+
+    private final String name;
+
+    UserField(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // null if the parameter wasn't sent
+    public static EnumSet<UserField> parse(String fields) {
+        return SparseFields.parse(fields, UserField.class, UserField::getName);
+    }
+
+    public static String etagSuffix(Set<UserField> fields) {
+        return SparseFields.etagSuffix(fields, UserField::getName);
+    }
+}
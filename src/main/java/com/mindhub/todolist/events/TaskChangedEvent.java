@@ -0,0 +1,20 @@
+package com.mindhub.todolist.events;
+
+import com.mindhub.todolist.dtos.TaskChangeType;
+import com.mindhub.todolist.models.Task;
+
+// Published by the TaskService inside the transaction of the change
+// the listeners receive it after the commit (@TransactionalEventListener)
+// task: the entity (after the commit it has the final version), null for DELETED
+public record TaskChangedEvent(
+        Long userId,
+
+        TaskChangeType type,
+
+        Long taskId,
+
+        long changeSeq,
+
+        Task task
+) {
+}
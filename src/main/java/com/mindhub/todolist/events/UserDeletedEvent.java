@@ -0,0 +1,8 @@
+package com.mindhub.todolist.events;
+
+// Published by the deletion job when it ends (also a failed one: some tasks can be deleted already)
+// the tasks were deleted in bulk, without their TaskChangedEvent: the listeners drop what they keep of the user
+public record UserDeletedEvent(
+        Long userId
+) {
+}
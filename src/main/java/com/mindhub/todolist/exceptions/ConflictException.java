@@ -0,0 +1,9 @@
+package com.mindhub.todolist.exceptions;
+
+// The request conflicts with the current data, e.g. an email already in use (409)
+// without stack trace, like NotFoundException
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,9 @@
+package com.mindhub.todolist.exceptions;
+
+// The resource exists but isn't of the user (403)
+// without stack trace, like NotFoundException
+public class ForbiddenException extends RuntimeException {
+    public ForbiddenException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,9 @@
+package com.mindhub.todolist.exceptions;
+
+// The task, user or job doesn't exist (404)
+// thrown on every bad id: super(..., false, false) skips the stack trace, the handler only needs the message
+public class NotFoundException extends RuntimeException {
+    public NotFoundException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,99 @@
+package com.mindhub.todolist.models;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// A long text in the DB: compressed (Deflate) above the threshold, as UTF-8 below it
+// the first byte says which one, so the short texts don't pay for the compression
+// every value needs that byte: the rows of the old varchar column aren't read (the column has to be migrated)
+// the bytes of a text can change with the version of zlib: no equality queries on the column
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+    static final int COMPRESSION_THRESHOLD = 1024;
+    static final byte PLAIN = 0;
+    static final byte DEFLATE = 1;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        if (text == null) {
+            return null;
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= COMPRESSION_THRESHOLD) {
+            byte[] compressed = deflate(utf8);
+            // a text that doesn't compress (e.g. already compressed data in base64) stays as it is
+            if (compressed.length < utf8.length) {
+                return withMarker(DEFLATE, compressed);
+            }
+        }
+        return withMarker(PLAIN, utf8);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] column) {
+        if (column == null) {
+            return null;
+        }
+        if (column.length == 0) {
+            return "";
+        }
+        byte[] content = Arrays.copyOfRange(column, 1, column.length);
+        return switch (column[0]) {
+            case PLAIN -> new String(content, StandardCharsets.UTF_8);
+            case DEFLATE -> new String(inflate(content), StandardCharsets.UTF_8);
+            default -> throw new IllegalStateException("Unknown format of the compressed text: " + column[0]);
+        };
+    }
+
+    private static byte[] withMarker(byte marker, byte[] content) {
+        byte[] column = new byte[content.length + 1];
+        column[0] = marker;
+        System.arraycopy(content, 0, column, 1, content.length);
+        return column;
+    }
+
+    // raw Deflate (without the zlib header): only the marker byte in front of it
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed text");
+                }
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Invalid compressed text", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.mindhub.todolist.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+
+import java.time.LocalDateTime;
+
+// Table in the DB
+// A user deletion that is done in the background (the tasks are deleted in chunks)
+@Entity
+public class DeletionJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // only the id, the user is deleted at the end of the job
+    private Long userId;
+
+    private String email;
+
+    private DeletionStatus status = DeletionStatus.PENDING;
+
+    private long totalTasks;
+
+    private long deletedTasks;
+
+    private String error;
+
+    private LocalDateTime requestedAt;
+
+    private LocalDateTime finishedAt;
+
+    // Constructor - Responsibility to create a DeletionJob for a user
+    public DeletionJob(Long userId, String email, long totalTasks) {
+        this.userId = userId;
+        this.email = email;
+        this.totalTasks = totalTasks;
+        this.requestedAt = LocalDateTime.now();
+    }
+
+    // Empty Constructor
+    public DeletionJob() {}
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public DeletionStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(DeletionStatus status) {
+        this.status = status;
+    }
+
+    public long getTotalTasks() {
+        return totalTasks;
+    }
+
+    public long getDeletedTasks() {
+        return deletedTasks;
+    }
+
+    public void addDeletedTasks(long deleted) {
+        this.deletedTasks += deleted;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getRequestedAt() {
+        return requestedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "DeletionJob{" +
+                "id=" + id +
+                ", userId=" + userId +
+                ", status=" + status +
+                ", deletedTasks=" + deletedTasks +
+                ", totalTasks=" + totalTasks +
+                '}';
+    }
+}
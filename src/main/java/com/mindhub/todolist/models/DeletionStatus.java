@@ -0,0 +1,5 @@
+package com.mindhub.todolist.models;
+
+public enum DeletionStatus {
+    PENDING, RUNNING, COMPLETED, FAILED
+}
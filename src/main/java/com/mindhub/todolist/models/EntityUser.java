@@ -10,9 +10,17 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 // Table in the DB
+// second-level cache (regions in application.conf): every request reads its user by email (token) or by id
+// the email is the natural id: findByEmail resolves it from the cache without a query
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "user-emails")
 public class EntityUser {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,15 +31,21 @@ public class EntityUser {
 
     private String password;
 
-    @Column(unique = true)
+    // unique (natural id), mutable: the profile changes it
+    @NaturalId(mutable = true)
     private String email;
 
     private RoleType role = RoleType.USER;
 
+    // false while the account is waiting for the deletion job, the tokens stop working
+    private boolean enabled = true;
+
     // mappedBy points to the attribute "user" in Task
     // with Set (instead of List) we have the data without repetitions (happen sometimes with List)
     // for default is LAZY in fetch
+    // the ids of the tasks are cached (the tasks in their region), evicted when a task changes of user or is created/deleted
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-tasks")
     private Set<Task> tasks = new HashSet<>();
 
     // @ElementCollection Simulation for a OneToMany relation, automatic
@@ -98,6 +112,14 @@ public class EntityUser {
         this.role = role;
     }
 
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
     // Polymorphism
     @Override
     public String toString() {
@@ -2,21 +2,51 @@ package com.mindhub.todolist.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.Length;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 // Table in the DB
+// index: the changes of a user after a cursor (delta sync)
+// unique: a task created by the sync with a client id is created once
+// @DynamicUpdate: the UPDATE only has the changed columns (a change of status doesn't send the title and description)
+// @Cache: findById of the task (detail, update, sync) from memory, the bulk deletes evict the region
 @Entity
+@DynamicUpdate
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "tasks")
+@Table(indexes = @Index(name = "idx_task_user_change_seq", columnList = "user_id, change_seq"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_task_user_client_id", columnNames = {"user_id", "client_id"}))
 public class Task {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    private String title, description;
+    private String title;
+
+    // long text, lazy (bytecode enhancement): the lists and scans don't read it, only the detail
+    // compressed in the DB above 1 KB, decompressed when it's loaded
+    @Basic(fetch = FetchType.LAZY)
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(length = Length.LONG32)
+    private String description;
 
     private TaskStatus status;
 
     @ManyToOne
     private EntityUser user;
 
+    // Optimistic lock: +1 with every update of the task (ETag of the task)
+    @Version
+    private Long version;
+
+    // Sequence of the last change of the task, taken from the version of the user (TaskCounter)
+    // increases with every change of the tasks of the user
+    private long changeSeq;
+
+    // Id generated by the client (offline-first sync), null for the tasks created by the API
+    private String clientId;
+
     // Constructor - Responsibility to create a Task (not create a relation)
     public Task(String title, String description, TaskStatus status) {
         this.title = title;
@@ -59,6 +89,26 @@ public class Task {
     public EntityUser getUser() {
         return user;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
     // method to create the relation
     public void setUser(EntityUser user) {
         this.user = user;
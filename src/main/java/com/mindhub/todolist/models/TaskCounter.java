@@ -0,0 +1,107 @@
+package com.mindhub.todolist.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+// Table in the DB
+// Number of tasks of a user by status, updated with every change of the tasks
+// reading the counts doesn't need to scan the tasks table
+@Entity
+public class TaskCounter {
+    // same id as the user (one row per user)
+    @Id
+    private Long userId;
+
+    private long total;
+
+    private long pending;
+
+    private long inProgress;
+
+    private long completed;
+
+    // Version of the data of the user: +1 with every change of its tasks or its profile (ETags)
+    private long version;
+
+    // The tombstones up to this sequence were purged: an older cursor needs a full sync
+    private long purgedSeq;
+
+    // Constructor - counters in 0
+    public TaskCounter(Long userId) {
+        this.userId = userId;
+    }
+
+    public TaskCounter(Long userId, long pending, long inProgress, long completed, long version) {
+        this.userId = userId;
+        this.pending = pending;
+        this.inProgress = inProgress;
+        this.completed = completed;
+        this.total = pending + inProgress + completed;
+        this.version = version;
+    }
+
+    // Empty Constructor
+    public TaskCounter() {}
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getPending() {
+        return pending;
+    }
+
+    public long getInProgress() {
+        return inProgress;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void incrementVersion() {
+        version++;
+    }
+
+    public long getPurgedSeq() {
+        return purgedSeq;
+    }
+
+    public long getCount(TaskStatus status) {
+        return switch (status) {
+            case PENDING -> pending;
+            case IN_PROGRESS -> inProgress;
+            case COMPLETED -> completed;
+        };
+    }
+
+    public void setCount(TaskStatus status, long count) {
+        switch (status) {
+            case PENDING -> pending = count;
+            case IN_PROGRESS -> inProgress = count;
+            case COMPLETED -> completed = count;
+        }
+        total = pending + inProgress + completed;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskCounter{" +
+                "userId=" + userId +
+                ", total=" + total +
+                ", pending=" + pending +
+                ", inProgress=" + inProgress +
+                ", completed=" + completed +
+                ", version=" + version +
+                ", purgedSeq=" + purgedSeq +
+                '}';
+    }
+}
@@ -0,0 +1,70 @@
+package com.mindhub.todolist.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Table in the DB
+// A deleted task: the delta sync sends it to the clients as a deletion
+// they are purged after some days (todolist.sync.tombstone-retention-days)
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_tombstone_user_change_seq", columnList = "user_id, change_seq"),
+        @Index(name = "idx_tombstone_deleted_at", columnList = "deleted_at")
+})
+public class TaskTombstone {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // only the ids, the task doesn't exist anymore
+    private Long taskId;
+
+    private Long userId;
+
+    private long changeSeq;
+
+    private LocalDateTime deletedAt;
+
+    // Constructor - Responsibility to create the tombstone of a deleted task
+    public TaskTombstone(Long taskId, Long userId, long changeSeq) {
+        this.taskId = taskId;
+        this.userId = userId;
+        this.changeSeq = changeSeq;
+        this.deletedAt = LocalDateTime.now();
+    }
+
+    // Empty Constructor
+    public TaskTombstone() {}
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskTombstone{" +
+                "id=" + id +
+                ", taskId=" + taskId +
+                ", userId=" + userId +
+                ", changeSeq=" + changeSeq +
+                ", deletedAt=" + deletedAt +
+                '}';
+    }
+}
@@ -0,0 +1,19 @@
+package com.mindhub.todolist.repositories;
+
+import com.mindhub.todolist.models.DeletionJob;
+import com.mindhub.todolist.models.DeletionStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// <class DeletionJob, ID's type>
+public interface DeletionJobRepository extends JpaRepository<DeletionJob, Long> {
+    // jobs that the runner still has to process
+    List<DeletionJob> findByStatusInOrderByIdAsc(Collection<DeletionStatus> statuses);
+
+    Optional<DeletionJob> findFirstByUserIdAndStatusIn(Long userId, Collection<DeletionStatus> statuses);
+
+    List<DeletionJob> findAllByOrderByIdDesc();
+}
@@ -1,22 +1,30 @@
 package com.mindhub.todolist.repositories;
 
+import com.mindhub.todolist.dtos.EntityUserTaskRow;
 import com.mindhub.todolist.models.EntityUser;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-import java.util.Optional;
+import java.util.List;
+import java.util.stream.Stream;
 
 // <class EntityUser, ID's type
 // @Repository - It's not necessary because JpaRepository already have @Repository from its extensions
 // a Repository is a component, that moves the information to the DB and brings it from the DB
 // <Generic>
-public interface EntityUserRepository extends JpaRepository<EntityUser, Long> {
+// findByEmail and findIdByEmail: by the natural id, in EntityUserRepositoryCustom
+public interface EntityUserRepository extends JpaRepository<EntityUser, Long>, EntityUserRepositoryCustom {
     // query's - @Query() with native query
     // derived methods - findById, existsById, and countBy
 
     // The repository from JPA already have this method
     //EntityUser findById(long id);
     EntityUser findByUsername(String username);
-    Optional<EntityUser> findByEmail(String email);
     EntityUser findByUsernameAndPassword(String username, String password);
 
     boolean existsById(long id);
@@ -31,4 +39,19 @@ public interface EntityUserRepository extends JpaRepository<EntityUser, Long> {
     int countByUsername(String username);
     int countByEmail(String email);
     int countByUsernameAndPassword(String username, String password);
+
+    // Only the ids, by pages (jobs that go through all the users)
+    @Query("select u.id from EntityUser u where u.id > :afterId order by u.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Cursors of all the users for the admin list (written while they're read), ordered by user
+    // with tasks: a row by task (the summary, without the description), the users without tasks in one row with a null task
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TaskRepository.STREAM_FETCH_SIZE))
+    @Query("select new com.mindhub.todolist.dtos.EntityUserTaskRow(u.id, u.username, u.email, u.role, t.id, t.title, t.status, t.version, t.clientId) " +
+            "from EntityUser u left join u.tasks t order by u.id, t.id")
+    Stream<EntityUserTaskRow> streamAllWithTasks();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TaskRepository.STREAM_FETCH_SIZE))
+    @Query("select new com.mindhub.todolist.dtos.EntityUserTaskRow(u.id, u.username, u.email, u.role) from EntityUser u order by u.id")
+    Stream<EntityUserTaskRow> streamAll();
 }
@@ -0,0 +1,14 @@
+package com.mindhub.todolist.repositories;
+
+import com.mindhub.todolist.models.EntityUser;
+
+import java.util.Optional;
+
+// Lookups by the natural id (email) through the second-level cache (implemented in EntityUserRepositoryCustomImpl)
+// they replace the derived queries: the callers don't change
+public interface EntityUserRepositoryCustom {
+    Optional<EntityUser> findByEmail(String email);
+
+    // Only the id of the authenticated user (without loading the user and its tasks)
+    Optional<Long> findIdByEmail(String email);
+}
@@ -0,0 +1,28 @@
+package com.mindhub.todolist.repositories;
+
+import com.mindhub.todolist.models.EntityUser;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Transactional(readOnly = true)
+public class EntityUserRepositoryCustomImpl implements EntityUserRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // email -> id from the natural id region, then the user from its region (a query only on a miss)
+    @Override
+    public Optional<EntityUser> findByEmail(String email) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(EntityUser.class).loadOptional(email);
+    }
+
+    // a reference: the id is resolved (cache or "select id"), the user isn't loaded
+    @Override
+    public Optional<Long> findIdByEmail(String email) {
+        EntityUser reference = entityManager.unwrap(Session.class).bySimpleNaturalId(EntityUser.class).getReference(email);
+        return Optional.ofNullable(reference).map(EntityUser::getId);
+    }
+}
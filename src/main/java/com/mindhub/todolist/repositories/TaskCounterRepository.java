@@ -0,0 +1,41 @@
+package com.mindhub.todolist.repositories;
+
+import com.mindhub.todolist.models.TaskCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// <class TaskCounter, ID's type (the user's id)>
+public interface TaskCounterRepository extends JpaRepository<TaskCounter, Long> {
+    // Adds the deltas in the DB (atomic, without reading the row first) and increments the version
+    // returns 0 if the user doesn't have counters yet
+    @Modifying
+    @Query("update TaskCounter c set c.total = c.total + :total, c.pending = c.pending + :pending, " +
+            "c.inProgress = c.inProgress + :inProgress, c.completed = c.completed + :completed, " +
+            "c.version = c.version + 1 where c.userId = :userId")
+    int adjust(@Param("userId") Long userId, @Param("total") long total, @Param("pending") long pending,
+               @Param("inProgress") long inProgress, @Param("completed") long completed);
+
+    // Copy of the row read from the DB (not managed), adjust doesn't update the managed instances
+    @Query("select new com.mindhub.todolist.models.TaskCounter(c.userId, c.pending, c.inProgress, c.completed, c.version) " +
+            "from TaskCounter c where c.userId = :userId")
+    Optional<TaskCounter> findSnapshotById(@Param("userId") Long userId);
+
+    // Only the version (the sequence of the last change)
+    @Query("select c.version from TaskCounter c where c.userId = :userId")
+    Optional<Long> findVersionById(@Param("userId") Long userId);
+
+    @Query("select c.purgedSeq from TaskCounter c where c.userId = :userId")
+    Optional<Long> findPurgedSeqById(@Param("userId") Long userId);
+
+    // Before purging the tombstones: saves the last purged sequence of every user
+    @Modifying
+    @Query("update TaskCounter c set c.purgedSeq = (select max(t.changeSeq) from TaskTombstone t " +
+            "where t.userId = c.userId and t.deletedAt < :before) " +
+            "where exists (select t.id from TaskTombstone t where t.userId = c.userId and t.deletedAt < :before)")
+    int markPurged(@Param("before") LocalDateTime before);
+}
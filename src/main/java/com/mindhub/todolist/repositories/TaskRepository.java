@@ -1,29 +1,85 @@
 package com.mindhub.todolist.repositories;
 
+import com.mindhub.todolist.dtos.TaskDTO;
+import com.mindhub.todolist.dtos.TaskStatusCount;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
 import com.mindhub.todolist.models.EntityUser;
 import com.mindhub.todolist.models.Task;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 // <class Task, ID's type>
-public interface TaskRepository extends JpaRepository<Task, Long> {
+public interface TaskRepository extends JpaRepository<Task, Long>, TaskRepositoryCustom {
+    String TASK_DTO = "select new com.mindhub.todolist.dtos.TaskDTO(t.id, t.title, t.description, t.status, t.version, t.clientId) from Task t ";
+    // rows read by the JDBC driver at a time in the streams (cursors)
+    String STREAM_FETCH_SIZE = "500";
+
     // derived methods - findById, existsById, and countBy
+    // not by description: the column is compressed (CompressedTextConverter), its bytes aren't a key to compare
     // The repository from JPA already have this method
     //Task findById(long id);
     Task findByTitle(String title);
-    Task findByDescription(String description);
     Task findByUser(EntityUser user);
     List<Task> findByUserId(Long userId);
 
     boolean existsById(long id);
     boolean existsByTitle(String title);
-    boolean existsByDescription(String description);
     boolean existsByUser(EntityUser user);
 
     int countById(long id);
     int countByTitle(String title);
-    int countByDescription(String description);
     int countByUser(EntityUser user);
+    long countByUserId(Long userId);
+
+    // Only the ids (a chunk) - the deletion job removes them with deleteAllByIdInBatch
+    @Query("select t.id from Task t where t.user.id = :userId order by t.id")
+    List<Long> findIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // The task created by the sync with the id of the client
+    Optional<Task> findByUserIdAndClientId(Long userId, String clientId);
+
+    // The tasks changed after the cursor (index user_id, change_seq)
+    List<Task> findByUserIdAndChangeSeqGreaterThanOrderByChangeSeq(Long userId, long changeSeq);
+
+    // The lists: summaries without the description (the column isn't read)
+    @Query("select new com.mindhub.todolist.dtos.TaskSummaryDTO(t.id, t.title, t.status, t.version, t.clientId) " +
+            "from Task t where t.user.id = :userId order by t.id")
+    List<TaskSummaryDTO> findSummariesByUserId(@Param("userId") Long userId);
+
+    // Cursor of all the summaries: the admin list is written while it's read (in a read-only transaction, closed after it)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select new com.mindhub.todolist.dtos.TaskSummaryDTO(t.id, t.title, t.status, t.version, t.clientId) " +
+            "from Task t order by t.id")
+    Stream<TaskSummaryDTO> streamAllSummaries();
+
+    // Full tasks of a list in one query (the description is lazy in the entity: one select more by task)
+    @Query(TASK_DTO + "where t.user.id = :userId order by t.id")
+    List<TaskDTO> findDTOsByUserId(@Param("userId") Long userId);
+
+    // Multi-get: a set of tasks in one IN-list query (the user's are filtered in the query)
+    @Query(TASK_DTO + "where t.id in :ids")
+    List<TaskDTO> findDTOsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(TASK_DTO + "where t.id in :ids and t.user.id = :userId")
+    List<TaskDTO> findDTOsByIdInAndUserId(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
+
+    // Only the version of a task (ETag), without loading it
+    @Query("select t.version from Task t where t.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Counts by status of a user in one grouped query (the tasks aren't loaded)
+    @Query("select new com.mindhub.todolist.dtos.TaskStatusCount(t.status, count(t)) " +
+            "from Task t where t.user.id = :userId group by t.status")
+    List<TaskStatusCount> countByStatusForUser(@Param("userId") Long userId);
 
 }
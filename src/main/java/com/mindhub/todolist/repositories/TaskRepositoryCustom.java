@@ -0,0 +1,18 @@
+package com.mindhub.todolist.repositories;
+
+import com.mindhub.todolist.dtos.TaskField;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Queries that Spring Data can't derive (implemented in TaskRepositoryCustomImpl)
+public interface TaskRepositoryCustom {
+    // Sparse fieldsets: only the columns of the fields, a map (field -> value) by task ordered by id
+    // userId or id null: without that filter
+    List<Map<String, Object>> findFields(Set<TaskField> fields, Long userId, Long id);
+
+    // The same rows from a cursor (to close after reading it, in a transaction)
+    Stream<Map<String, Object>> streamFields(Set<TaskField> fields, Long userId, Long id);
+}
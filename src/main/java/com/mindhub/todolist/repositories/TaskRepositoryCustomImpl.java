@@ -0,0 +1,67 @@
+package com.mindhub.todolist.repositories;
+
+import com.mindhub.todolist.dtos.TaskField;
+import com.mindhub.todolist.models.Task;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class TaskRepositoryCustomImpl implements TaskRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findFields(Set<TaskField> fields, Long userId, Long id) {
+        try (Stream<Map<String, Object>> rows = streamFields(fields, userId, id)) {
+            return rows.toList();
+        }
+    }
+
+    @Override
+    public Stream<Map<String, Object>> streamFields(Set<TaskField> fields, Long userId, Long id) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Task> task = query.from(Task.class);
+        // select only the columns of the fields (e.g. without the description)
+        List<Selection<?>> selections = new ArrayList<>();
+        for (TaskField field : fields) {
+            selections.add(task.get(field.getName()).alias(field.getName()));
+        }
+        query.multiselect(selections);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (userId != null) {
+            predicates.add(cb.equal(task.get("user").get("id"), userId));
+        }
+        if (id != null) {
+            predicates.add(cb.equal(task.get("id"), id));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+        query.orderBy(cb.asc(task.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, Integer.parseInt(TaskRepository.STREAM_FETCH_SIZE))
+                .getResultStream()
+                .map(tuple -> {
+                    // in the order of the fields (the order of the keys in the JSON)
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (TaskField field : fields) {
+                        row.put(field.getName(), tuple.get(field.getName()));
+                    }
+                    return row;
+                });
+    }
+}
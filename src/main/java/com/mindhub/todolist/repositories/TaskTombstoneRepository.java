@@ -0,0 +1,28 @@
+package com.mindhub.todolist.repositories;
+
+import com.mindhub.todolist.models.TaskTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// <class TaskTombstone, ID's type>
+public interface TaskTombstoneRepository extends JpaRepository<TaskTombstone, Long> {
+    // Ids of the tasks deleted after the cursor (index user_id, change_seq)
+    @Query("select t.taskId from TaskTombstone t where t.userId = :userId and t.changeSeq > :since order by t.changeSeq")
+    List<Long> findTaskIdsDeletedAfter(@Param("userId") Long userId, @Param("since") long since);
+
+    @Modifying
+    @Query("delete from TaskTombstone t where t.deletedAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+
+    // its own transaction: the deletion job calls it without one
+    @Transactional
+    @Modifying
+    @Query("delete from TaskTombstone t where t.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
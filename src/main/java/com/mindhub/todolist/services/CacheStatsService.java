@@ -0,0 +1,10 @@
+package com.mindhub.todolist.services;
+
+import com.mindhub.todolist.dtos.CacheRegionStatsDTO;
+
+import java.util.List;
+
+public interface CacheStatsService {
+    // hits, misses and puts of every region of the second-level cache (ordered by name)
+    List<CacheRegionStatsDTO> getSecondLevelCacheStats();
+}
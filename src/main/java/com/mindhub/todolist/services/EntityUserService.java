@@ -1,12 +1,18 @@
 package com.mindhub.todolist.services;
 
+import com.mindhub.todolist.dtos.DeletionJobDTO;
 import com.mindhub.todolist.dtos.EntityUserDTO;
+import com.mindhub.todolist.dtos.EntityUserSummaryDTO;
 import com.mindhub.todolist.dtos.NewEntityUser;
 import com.mindhub.todolist.dtos.UpdateEntityUserPasswordDTO;
 import com.mindhub.todolist.dtos.UpdateEntityUserUsernameEmailDTO;
+import com.mindhub.todolist.dtos.UserField;
 import com.mindhub.todolist.models.EntityUser;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface EntityUserService {
     // only declare methods because it's an interface
@@ -14,8 +20,24 @@ public interface EntityUserService {
 
     EntityUserDTO getEntityUserDTOByEmail(String email);
 
+    // profile with the counts by status (without the tasks)
+    EntityUserSummaryDTO getEntityUserSummaryById(Long id);
+
+    EntityUserSummaryDTO getEntityUserSummaryByEmail(String email);
+
+    // sparse fieldsets: only the fields (the tasks are only queried with "tasks")
+    Map<String, Object> getEntityUserFieldsById(Long id, Set<UserField> fields);
+
+    Map<String, Object> getEntityUserFieldsByEmail(String email, Set<UserField> fields);
+
+    // all the users, one by one to the consumer while they're read (cursor), without a list in memory
+    void streamAllEntityUserFields(Set<UserField> fields, Consumer<Map<String, Object>> consumer);
+
     EntityUser getEntityUserById(Long id);
 
+    // only the id (authenticated user), doesn't load the tasks
+    Long getEntityUserIdByEmail(String email);
+
     EntityUser getEntityUserByEmail(String email);
 
     EntityUser saveEntityUser(EntityUser entityUser);
@@ -24,7 +46,7 @@ public interface EntityUserService {
 
     void registerUser(NewEntityUser newEntityUser);
 
-    public List<EntityUserDTO> getAllEntityUsers();
+    void streamAllEntityUsers(Consumer<EntityUserDTO> consumer);
     //void deleteEntityUserById(Long id);
 
     public boolean existsByEmail(String email);
@@ -33,7 +55,12 @@ public interface EntityUserService {
 
     boolean updateEntityUserPassword(Long id, UpdateEntityUserPasswordDTO updatedPassword);
 
-    public boolean deleteEntityUser(Long id);
+    // disables the user and leaves the deletion (tasks in chunks) to the background job
+    DeletionJobDTO requestEntityUserDeletion(Long id);
+
+    List<DeletionJobDTO> getAllDeletionJobs();
+
+    DeletionJobDTO getDeletionJobById(Long id);
 
     public void validateEntityUser(NewEntityUser newEntityUser);
 
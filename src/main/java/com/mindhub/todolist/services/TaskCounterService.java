@@ -0,0 +1,42 @@
+package com.mindhub.todolist.services;
+
+import com.mindhub.todolist.models.TaskStatus;
+
+import java.util.Map;
+
+public interface TaskCounterService {
+    // they join the transaction of the change of the task and are called BEFORE the task is written
+    // every change increments the version of the data of the user
+    // returns the new version: the sequence of the change (delta sync)
+    long taskCreated(Long userId, TaskStatus status);
+
+    long taskUpdated(Long userId, TaskStatus oldStatus, TaskStatus newStatus);
+
+    long taskDeleted(Long userId, TaskStatus status);
+
+    // only increments the version (changes of the profile); null: only the global version
+    void touch(Long userId);
+
+    Map<TaskStatus, Long> getCounts(Long userId);
+
+    // version of the tasks and profile of a user (ETags)
+    long getVersion(Long userId);
+
+    // the tombstones of the user up to this sequence were purged
+    long getPurgedSeq(Long userId);
+
+    // version of all the data (lists of the admins), changes after the commit of any change
+    String getGlobalVersion();
+
+    // recalculates the counters from the tasks table, returns true if they were wrong
+    boolean recount(Long userId);
+
+    // the counters of a user without them, from the committed tasks (in a new transaction)
+    // DataIntegrityViolationException if another request created them first
+    boolean createCounters(Long userId);
+
+    // recount of all the users, returns how many were corrected
+    int recountAll();
+
+    void deleteCounters(Long userId);
+}
@@ -0,0 +1,24 @@
+package com.mindhub.todolist.services;
+
+import com.mindhub.todolist.dtos.TaskEventDTO;
+
+// In-process fan-out of the events of the tasks to the subscribers of a user (SSE connections)
+public interface TaskEventBus {
+    // every subscriber has a bounded buffer: if it can't keep up, the buffer is dropped and it receives RESYNC
+    Subscription subscribe(Long userId, Listener listener);
+
+    void publish(Long userId, TaskEventDTO event);
+
+    int getSubscriberCount();
+
+    // called from the threads of the bus, the events of a subscriber arrive in order
+    // if it throws an exception the subscription is cancelled
+    @FunctionalInterface
+    interface Listener {
+        void onEvent(TaskEventDTO event) throws Exception;
+    }
+
+    interface Subscription {
+        void cancel();
+    }
+}
@@ -0,0 +1,28 @@
+package com.mindhub.todolist.services;
+
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
+import com.mindhub.todolist.models.TaskStatus;
+
+import java.util.List;
+import java.util.Map;
+
+// In-memory view of the tasks of the users (summaries by user), updated after the commit of every change
+// a user is served only at the version of its data (TaskCounter): null if it isn't there or it's older, the caller queries the DB
+public interface TaskReadModel {
+    // ordered by id, like findSummariesByUserId
+    List<TaskSummaryDTO> getTasks(Long userId, long version);
+
+    List<TaskSummaryDTO> getTasks(Long userId, long version, TaskStatus status);
+
+    Map<TaskStatus, Long> getCounts(Long userId, long version);
+
+    // the tasks of the user queried from the DB; version: read BEFORE the query
+    void load(Long userId, long version, List<TaskSummaryDTO> tasks);
+
+    // all the users (until the memory budget) from the DB, called at the start
+    void rebuild();
+
+    int getUserCount();
+
+    long getUsedBytes();
+}
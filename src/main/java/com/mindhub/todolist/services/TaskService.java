@@ -3,25 +3,64 @@ package com.mindhub.todolist.services;
 import com.mindhub.todolist.dtos.EntityUserDTO;
 import com.mindhub.todolist.dtos.NewEntityUser;
 import com.mindhub.todolist.dtos.NewTask;
+import com.mindhub.todolist.dtos.SyncOperation;
+import com.mindhub.todolist.dtos.SyncOperationResult;
+import com.mindhub.todolist.dtos.TaskBatchDTO;
+import com.mindhub.todolist.dtos.TaskChangesDTO;
 import com.mindhub.todolist.dtos.TaskDTO;
+import com.mindhub.todolist.dtos.TaskField;
+import com.mindhub.todolist.dtos.TaskPatch;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
 import com.mindhub.todolist.models.EntityUser;
 import com.mindhub.todolist.models.Task;
+import com.mindhub.todolist.models.TaskStatus;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface TaskService {
     // only declare methods because it's an interface
     TaskDTO getTaskDTOById(Long id);
 
+    // userId null: any task (admin)
+    TaskBatchDTO getTasksByIds(List<Long> ids, Long userId);
+
+    // sparse fieldsets: only the columns of the fields are queried
+    Map<String, Object> getTaskFieldsById(Long id, Set<TaskField> fields);
+
+    List<Map<String, Object>> getTaskFieldsByUserId(Long userId, Set<TaskField> fields);
+
+    // all the tasks, one by one to the consumer while they're read (cursor), without a list in memory
+    void streamAllTaskFields(Set<TaskField> fields, Consumer<Map<String, Object>> consumer);
+
     Task getTaskById(Long id);
 
+    // version of the task (ETag) without loading it
+    Long getTaskVersion(Long id);
+
     Task saveTask(Task task);
 
     boolean createNewTask(Long userId, NewTask newTask);
 
-    public List<TaskDTO> getAllTasksById(Long userId);
+    // summaries (without the description)
+    public List<TaskSummaryDTO> getAllTasksById(Long userId);
 
-    public List<TaskDTO> getAllTasks();
+    // summaries of a status (filter of the list)
+    List<TaskSummaryDTO> getTasksByStatus(Long userId, TaskStatus status);
+
+    void streamAllTasks(Consumer<TaskSummaryDTO> consumer);
+
+    // tasks created/updated and deleted after the cursor (since)
+    TaskChangesDTO getTaskChanges(Long userId, long since);
+
+    // applies the operations of an offline client in order (one transaction), a result by operation
+    List<SyncOperationResult> syncTasks(Long userId, List<SyncOperation> operations);
+
+    // deletes the tombstones older than the date, returns how many
+    int purgeTombstones(LocalDateTime before);
 
     void deleteTaskById(Long id);
 
@@ -29,6 +68,9 @@ public interface TaskService {
 
     public boolean updateTask(Long id, TaskDTO updatedTask);
 
+    // only the fields of the patch, returns the task with its new version
+    TaskDTO patchTask(Long id, TaskPatch patch);
+
     public boolean deleteTask(Long id);
 
     boolean isTaskOwner(Long taskId, String userEmail);
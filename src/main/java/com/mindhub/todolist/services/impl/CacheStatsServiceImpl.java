@@ -0,0 +1,36 @@
+package com.mindhub.todolist.services.impl;
+
+import com.mindhub.todolist.dtos.CacheRegionStatsDTO;
+import com.mindhub.todolist.services.CacheStatsService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Service
+public class CacheStatsServiceImpl implements CacheStatsService {
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public List<CacheRegionStatsDTO> getSecondLevelCacheStats() {
+        // hibernate.generate_statistics: counted by Hibernate in every access to a region
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(region -> toDTO(region, statistics.getDomainDataRegionStatistics(region)))
+                .toList();
+    }
+
+    private static CacheRegionStatsDTO toDTO(String region, CacheRegionStatistics regionStatistics) {
+        long hits = regionStatistics.getHitCount();
+        long misses = regionStatistics.getMissCount();
+        double hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        return new CacheRegionStatsDTO(region, hits, misses, regionStatistics.getPutCount(), hitRatio);
+    }
+}
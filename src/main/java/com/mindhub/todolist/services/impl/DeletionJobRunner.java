@@ -0,0 +1,95 @@
+package com.mindhub.todolist.services.impl;
+
+import com.mindhub.todolist.events.UserDeletedEvent;
+import com.mindhub.todolist.models.DeletionJob;
+import com.mindhub.todolist.models.DeletionStatus;
+import com.mindhub.todolist.repositories.DeletionJobRepository;
+import com.mindhub.todolist.repositories.EntityUserRepository;
+import com.mindhub.todolist.repositories.TaskRepository;
+import com.mindhub.todolist.repositories.TaskTombstoneRepository;
+import com.mindhub.todolist.services.TaskCounterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+
+// Background job: deletes the users that requested it
+// The tasks are deleted in chunks, every repository call is its own (short) transaction
+// so the size of the account doesn't matter
+@Component
+public class DeletionJobRunner {
+    private static final Logger logger = LoggerFactory.getLogger(DeletionJobRunner.class);
+
+    @Autowired
+    private DeletionJobRepository deletionJobRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private EntityUserRepository entityUserRepository;
+
+    @Autowired
+    private TaskCounterService taskCounterService;
+
+    @Autowired
+    private TaskTombstoneRepository taskTombstoneRepository;
+
+    // the caches of the user (read model, responses) listen to the end of the job
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // tasks deleted by each statement
+    @Value("${todolist.deletion.chunk-size:500}")
+    private int chunkSize;
+
+    @Scheduled(fixedDelayString = "${todolist.deletion.poll-delay:5000}")
+    public void processPendingJobs() {
+        // RUNNING too: a job that was interrupted (restart) continues where it stopped
+        List<DeletionJob> jobs = deletionJobRepository
+                .findByStatusInOrderByIdAsc(EnumSet.of(DeletionStatus.PENDING, DeletionStatus.RUNNING));
+        for (DeletionJob job : jobs) {
+            process(job);
+        }
+    }
+
+    public void process(DeletionJob job) {
+        try {
+            job.setStatus(DeletionStatus.RUNNING);
+            job = deletionJobRepository.save(job);
+            List<Long> ids = taskRepository.findIdsByUserId(job.getUserId(), PageRequest.of(0, chunkSize));
+            while (!ids.isEmpty()) {
+                // bulk delete, the tasks aren't loaded in memory (and without their events)
+                // Hibernate evicts the whole "tasks" region (L2) on every chunk, not only the tasks of the user:
+                // accepted, the deletions of accounts are rare and the next reads fill the region again
+                taskRepository.deleteAllByIdInBatch(ids);
+                job.addDeletedTasks(ids.size());
+                job = deletionJobRepository.save(job); // progress visible to the admins
+                ids = taskRepository.findIdsByUserId(job.getUserId(), PageRequest.of(0, chunkSize));
+            }
+            // without tasks the cascade of the user is cheap
+            if (entityUserRepository.existsById(job.getUserId())) {
+                entityUserRepository.deleteById(job.getUserId());
+            }
+            taskTombstoneRepository.deleteByUserId(job.getUserId());
+            taskCounterService.deleteCounters(job.getUserId());
+            job.setStatus(DeletionStatus.COMPLETED);
+        } catch (RuntimeException e) {
+            logger.error("Error deleting the user with ID " + job.getUserId(), e);
+            job.setStatus(DeletionStatus.FAILED);
+            job.setError(e.getMessage());
+        }
+        // also a failed job: some tasks can be deleted already
+        eventPublisher.publishEvent(new UserDeletedEvent(job.getUserId()));
+        job.setFinishedAt(LocalDateTime.now());
+        deletionJobRepository.save(job);
+    }
+}
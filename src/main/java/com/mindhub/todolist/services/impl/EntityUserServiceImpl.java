@@ -1,19 +1,40 @@
 package com.mindhub.todolist.services.impl;
 
+import com.mindhub.todolist.dtos.DeletionJobDTO;
 import com.mindhub.todolist.dtos.EntityUserDTO;
+import com.mindhub.todolist.dtos.EntityUserSummaryDTO;
+import com.mindhub.todolist.dtos.EntityUserTaskRow;
 import com.mindhub.todolist.dtos.NewEntityUser;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
 import com.mindhub.todolist.dtos.UpdateEntityUserPasswordDTO;
 import com.mindhub.todolist.dtos.UpdateEntityUserUsernameEmailDTO;
+import com.mindhub.todolist.dtos.UserField;
+import com.mindhub.todolist.exceptions.ConflictException;
+import com.mindhub.todolist.exceptions.NotFoundException;
+import com.mindhub.todolist.models.DeletionJob;
+import com.mindhub.todolist.models.DeletionStatus;
 import com.mindhub.todolist.models.EntityUser;
 import com.mindhub.todolist.models.RoleType;
+import com.mindhub.todolist.repositories.DeletionJobRepository;
 import com.mindhub.todolist.repositories.EntityUserRepository;
+import com.mindhub.todolist.repositories.TaskRepository;
 import com.mindhub.todolist.services.EntityUserService;
+import com.mindhub.todolist.services.TaskCounterService;
+import com.mindhub.todolist.utils.SingleFlight;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 // with @Service the implementation is in the context of Spring Boot
 // and a component
@@ -22,9 +43,20 @@ public class EntityUserServiceImpl implements EntityUserService {
     @Autowired
     private EntityUserRepository entityUserRepository;
 
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private DeletionJobRepository deletionJobRepository;
+
+    @Autowired
+    private TaskCounterService taskCounterService;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    private final SingleFlight<String, EntityUserDTO> profileFlight = new SingleFlight<>();
+
     @Override
     public EntityUserDTO getEntityUserDTOById(Long id) {
         return new EntityUserDTO(getEntityUserById(id));
@@ -32,19 +64,120 @@ public class EntityUserServiceImpl implements EntityUserService {
 
     @Override
     public EntityUserDTO getEntityUserDTOByEmail(String email) {
-        return new EntityUserDTO(getEntityUserByEmail(email));
+        // the profile (with the tasks) is also requested by every tab at the same time
+        // by version like the tasks: the changes of the profile and the tasks move it
+        String key = email + ":" + taskCounterService.getVersion(getEntityUserIdByEmail(email));
+        return profileFlight.execute(key, () -> new EntityUserDTO(getEntityUserByEmail(email)));
+    }
+
+    @Override
+    public EntityUserSummaryDTO getEntityUserSummaryById(Long id) {
+        return getEntityUserSummary(getEntityUserById(id));
+    }
+
+    @Override
+    public EntityUserSummaryDTO getEntityUserSummaryByEmail(String email) {
+        return getEntityUserSummary(getEntityUserByEmail(email));
+    }
+
+    @Override
+    public Map<String, Object> getEntityUserFieldsById(Long id, Set<UserField> fields) {
+        return getEntityUserFields(getEntityUserById(id), fields);
+    }
+
+    @Override
+    public Map<String, Object> getEntityUserFieldsByEmail(String email, Set<UserField> fields) {
+        return getEntityUserFields(getEntityUserByEmail(email), fields);
+    }
+
+    @Override
+    @Transactional(readOnly = true) // the cursor is open until the last row
+    public void streamAllEntityUserFields(Set<UserField> fields, Consumer<Map<String, Object>> consumer) {
+        // the tasks only when they are requested
+        try (Stream<EntityUserTaskRow> rows = fields.contains(UserField.TASKS)
+                ? entityUserRepository.streamAllWithTasks() : entityUserRepository.streamAll()) {
+            groupByUser(rows, user -> consumer.accept(getEntityUserFields(user, fields)));
+        }
+    }
+
+    // the rows of a user are consecutive (ordered by user): a user is complete when the next one starts
+    // in memory only the tasks of one user
+    private void groupByUser(Stream<EntityUserTaskRow> rows, Consumer<EntityUserDTO> consumer) {
+        EntityUserTaskRow user = null;
+        List<TaskSummaryDTO> tasks = new ArrayList<>();
+        for (Iterator<EntityUserTaskRow> iterator = rows.iterator(); iterator.hasNext(); ) {
+            EntityUserTaskRow row = iterator.next();
+            if (user != null && !user.userId().equals(row.userId())) {
+                consumer.accept(toEntityUserDTO(user, tasks));
+                tasks.clear();
+            }
+            user = row;
+            if (row.task() != null) {
+                tasks.add(row.task());
+            }
+        }
+        if (user != null) {
+            consumer.accept(toEntityUserDTO(user, tasks));
+        }
+    }
+
+    private EntityUserDTO toEntityUserDTO(EntityUserTaskRow row, List<TaskSummaryDTO> tasks) {
+        return new EntityUserDTO(row.userId(), row.username(), row.email(), row.role(), List.copyOf(tasks));
+    }
+
+    private Map<String, Object> getEntityUserFields(EntityUserDTO entityUser, Set<UserField> fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (UserField field : fields) {
+            Object value = switch (field) {
+                case ID -> entityUser.getId();
+                case USERNAME -> entityUser.getUsername();
+                case EMAIL -> entityUser.getEmail();
+                case ROLE -> entityUser.getRole();
+                case TASKS -> entityUser.getTasks();
+            };
+            values.put(field.getName(), value);
+        }
+        return values;
+    }
+
+    private Map<String, Object> getEntityUserFields(EntityUser entityUser, Set<UserField> fields) {
+        // in the order of the fields (the order of the keys in the JSON)
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (UserField field : fields) {
+            Object value = switch (field) {
+                case ID -> entityUser.getId();
+                case USERNAME -> entityUser.getUsername();
+                case EMAIL -> entityUser.getEmail();
+                case ROLE -> entityUser.getRole();
+                // the tasks (lazy) only when they are requested
+                case TASKS -> taskRepository.findSummariesByUserId(entityUser.getId());
+            };
+            values.put(field.getName(), value);
+        }
+        return values;
+    }
+
+    private EntityUserSummaryDTO getEntityUserSummary(EntityUser entityUser) {
+        // O(1): read from the counters, not from the tasks table
+        return new EntityUserSummaryDTO(entityUser, taskCounterService.getCounts(entityUser.getId()));
     }
 
     @Override
     public EntityUser getEntityUserById(Long id) {
         return entityUserRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("User with ID " + id + " not found"));
+                .orElseThrow(() -> new NotFoundException("User with ID " + id + " not found"));
+    }
+
+    @Override
+    public Long getEntityUserIdByEmail(String email) {
+        return entityUserRepository.findIdByEmail(email)
+                .orElseThrow(() -> new NotFoundException("User with email " + email + " not found"));
     }
 
     @Override
     public EntityUser getEntityUserByEmail(String email) {
         return entityUserRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User with email " + email + " not found"));
+                .orElseThrow(() -> new NotFoundException("User with email " + email + " not found"));
     }
 
     @Override
@@ -54,34 +187,42 @@ public class EntityUserServiceImpl implements EntityUserService {
     }
 
     @Override
+    @Transactional
     public void registerAdminUser(NewEntityUser newEntityUser) {
         validateEntityUser(newEntityUser);
         EntityUser entityUser = new EntityUser(newEntityUser.username(), passwordEncoder.encode(newEntityUser.password()), newEntityUser.email());
         entityUser.setRole(RoleType.ADMIN);
         saveEntityUser(entityUser);
+        // new user in the lists of the admins
+        taskCounterService.touch(entityUser.getId());
     }
 
+    @Transactional
     public void registerUser(NewEntityUser newEntityUser) {
         validateEntityUser(newEntityUser);
         EntityUser entityUser = new EntityUser(newEntityUser.username(), passwordEncoder.encode(newEntityUser.password()), newEntityUser.email());
         saveEntityUser(entityUser);
+        taskCounterService.touch(entityUser.getId());
     }
 
     public void validateEntityUser(NewEntityUser newEntityUser) {
         // Validate unique email
         if (entityUserRepository.existsByEmail(newEntityUser.email())) {
-            throw new IllegalArgumentException("The email " + newEntityUser.email() + " is already in use.");
+            throw new ConflictException("The email " + newEntityUser.email() + " is already in use.");
         }
         // Validate unique username
         if (entityUserRepository.existsByUsername(newEntityUser.username())) {
-            throw new IllegalArgumentException("The username " + newEntityUser.username() + " is already in use.");
+            throw new ConflictException("The username " + newEntityUser.username() + " is already in use.");
         }
     }
 
-    public List<EntityUserDTO> getAllEntityUsers() {
-        return entityUserRepository.findAll().stream()
-                .map(EntityUserDTO::new)
-                .collect(Collectors.toList());
+    @Override
+    @Transactional(readOnly = true) // the cursor is open until the last row
+    public void streamAllEntityUsers(Consumer<EntityUserDTO> consumer) {
+        // one query: the users with their tasks (not a query of tasks by user)
+        try (Stream<EntityUserTaskRow> rows = entityUserRepository.streamAllWithTasks()) {
+            groupByUser(rows, consumer);
+        }
     }
 
     public boolean existsByEmail(String email) {
@@ -89,21 +230,24 @@ public class EntityUserServiceImpl implements EntityUserService {
     }
 
     @Override
+    @Transactional
     public boolean updateEntityUserUsernameEmail(Long id, UpdateEntityUserUsernameEmailDTO updatedEntityUser) {
         EntityUser entityUser = getEntityUserById(id);
         // Validate unique email and username
         if(!updatedEntityUser.email().equals(entityUser.getEmail()) &&
             entityUserRepository.existsByEmailAndIdNot(updatedEntityUser.email(), id)) {
-            throw new IllegalArgumentException("The email " + updatedEntityUser.email() + " is already in use.");
+            throw new ConflictException("The email " + updatedEntityUser.email() + " is already in use.");
         }
         if(!updatedEntityUser.username().equals(entityUser.getUsername()) &&
             entityUserRepository.existsByUsernameAndIdNot(updatedEntityUser.username(), id)) {
-            throw new IllegalArgumentException("The username " + updatedEntityUser.username() + " is already in use.");
+            throw new ConflictException("The username " + updatedEntityUser.username() + " is already in use.");
         }
         // Update the user
         entityUser.setUsername(updatedEntityUser.username());
         entityUser.setEmail(updatedEntityUser.email());
         entityUserRepository.save(entityUser);
+        // the profile changed (ETags)
+        taskCounterService.touch(id);
         return true;
     }
 
@@ -132,11 +276,35 @@ public class EntityUserServiceImpl implements EntityUserService {
         return true;
     }*/
 
-    public boolean deleteEntityUser(Long id) {
-        if (!entityUserRepository.existsById(id)) {
-            return false;
+    @Override
+    @Transactional
+    public DeletionJobDTO requestEntityUserDeletion(Long id) {
+        EntityUser entityUser = getEntityUserById(id);
+        // the same user can't have two jobs running
+        DeletionJob deletionJob = deletionJobRepository
+                .findFirstByUserIdAndStatusIn(id, EnumSet.of(DeletionStatus.PENDING, DeletionStatus.RUNNING))
+                .orElse(null);
+        if (deletionJob == null) {
+            // disabled: can't login and the tokens are rejected by the JwtAuthenticationFilter
+            entityUser.setEnabled(false);
+            entityUserRepository.save(entityUser);
+            deletionJob = deletionJobRepository.save(
+                    new DeletionJob(id, entityUser.getEmail(), taskRepository.countByUserId(id)));
         }
-        entityUserRepository.deleteById(id);
-        return true;
+        return new DeletionJobDTO(deletionJob);
+    }
+
+    @Override
+    public List<DeletionJobDTO> getAllDeletionJobs() {
+        return deletionJobRepository.findAllByOrderByIdDesc().stream()
+                .map(DeletionJobDTO::new)
+                .toList();
+    }
+
+    @Override
+    public DeletionJobDTO getDeletionJobById(Long id) {
+        return deletionJobRepository.findById(id)
+                .map(DeletionJobDTO::new)
+                .orElseThrow(() -> new NotFoundException("Deletion job with ID " + id + " not found"));
     }
 }
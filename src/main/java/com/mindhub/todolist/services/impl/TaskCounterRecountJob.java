@@ -0,0 +1,25 @@
+package com.mindhub.todolist.services.impl;
+
+import com.mindhub.todolist.services.TaskCounterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Background job: repairs the counters of the tasks if they drift from the tasks table
+@Component
+public class TaskCounterRecountJob {
+    private static final Logger logger = LoggerFactory.getLogger(TaskCounterRecountJob.class);
+
+    @Autowired
+    private TaskCounterService taskCounterService;
+
+    @Scheduled(cron = "${todolist.counters.recount-cron:0 0 3 * * *}")
+    public void recountAll() {
+        int corrected = taskCounterService.recountAll();
+        if (corrected > 0) {
+            logger.warn("Task counters corrected for {} users", corrected);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.mindhub.todolist.services.impl;
+
+import com.mindhub.todolist.dtos.TaskStatusCount;
+import com.mindhub.todolist.models.TaskCounter;
+import com.mindhub.todolist.models.TaskStatus;
+import com.mindhub.todolist.repositories.EntityUserRepository;
+import com.mindhub.todolist.repositories.TaskCounterRepository;
+import com.mindhub.todolist.repositories.TaskRepository;
+import com.mindhub.todolist.services.TaskCounterService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class TaskCounterServiceImpl implements TaskCounterService {
+    @Autowired
+    private TaskCounterRepository taskCounterRepository;
+    @Autowired
+    private TaskRepository taskRepository;
+    @Autowired
+    private EntityUserRepository entityUserRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
+    // the proxy of this service, recountAll uses a transaction by user
+    @Autowired
+    @Lazy
+    private TaskCounterService self;
+
+    // the global version lives in memory, the start of the app is part of it
+    // so the ETags from before a restart don't match
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong globalVersion = new AtomicLong();
+
+    @Override
+    @Transactional
+    public long taskCreated(Long userId, TaskStatus status) {
+        return adjust(userId, 1, status, 1);
+    }
+
+    @Override
+    @Transactional
+    public long taskUpdated(Long userId, TaskStatus oldStatus, TaskStatus newStatus) {
+        Map<TaskStatus, Long> deltas = new EnumMap<>(TaskStatus.class);
+        if (oldStatus != newStatus) {
+            deltas.put(oldStatus, -1L);
+            deltas.put(newStatus, 1L);
+        }
+        // without deltas (only title or description) the version is incremented anyway
+        return adjust(userId, 0, deltas);
+    }
+
+    @Override
+    @Transactional
+    public long taskDeleted(Long userId, TaskStatus status) {
+        return adjust(userId, -1, status, -1);
+    }
+
+    @Override
+    @Transactional
+    public void touch(Long userId) {
+        if (userId != null) {
+            adjust(userId, 0, new EnumMap<>(TaskStatus.class));
+        } else {
+            incrementGlobalVersionAfterCommit();
+        }
+    }
+
+    private long adjust(Long userId, long total, TaskStatus status, long delta) {
+        Map<TaskStatus, Long> deltas = new EnumMap<>(TaskStatus.class);
+        deltas.put(status, delta);
+        return adjust(userId, total, deltas);
+    }
+
+    private long adjust(Long userId, long total, Map<TaskStatus, Long> deltas) {
+        int updated = updateCounters(userId, total, deltas);
+        if (updated == 0) {
+            // first change of the user: the counters are created from the tasks table
+            // (the change isn't written yet) and then the deltas are added
+            createCountersIfAbsent(userId);
+            updateCounters(userId, total, deltas);
+        }
+        incrementGlobalVersionAfterCommit();
+        // the row is locked by the update until the commit: the sequences of a user are committed in order
+        return taskCounterRepository.findVersionById(userId).orElseThrow();
+    }
+
+    private int updateCounters(Long userId, long total, Map<TaskStatus, Long> deltas) {
+        return taskCounterRepository.adjust(userId, total,
+                deltas.getOrDefault(TaskStatus.PENDING, 0L),
+                deltas.getOrDefault(TaskStatus.IN_PROGRESS, 0L),
+                deltas.getOrDefault(TaskStatus.COMPLETED, 0L));
+    }
+
+    // After the commit: if a reader gets the new version, it also sees the new data
+    private void incrementGlobalVersionAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    globalVersion.incrementAndGet();
+                }
+            });
+        } else {
+            globalVersion.incrementAndGet();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<TaskStatus, Long> getCounts(Long userId) {
+        TaskCounter counter = getCounter(userId);
+        Map<TaskStatus, Long> counts = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : TaskStatus.values()) {
+            counts.put(status, counter.getCount(status));
+        }
+        return counts;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getVersion(Long userId) {
+        return getCounter(userId).getVersion();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getPurgedSeq(Long userId) {
+        return taskCounterRepository.findPurgedSeqById(userId).orElse(0L);
+    }
+
+    private TaskCounter getCounter(Long userId) {
+        TaskCounter counter = taskCounterRepository.findSnapshotById(userId).orElse(null);
+        if (counter == null) {
+            createCountersIfAbsent(userId);
+            // created by this request or by another one: committed, visible to this transaction
+            counter = taskCounterRepository.findSnapshotById(userId).orElseThrow();
+        }
+        return counter;
+    }
+
+    // Two first accesses of the same user at the same time both try to insert its row:
+    // the insert is in its own transaction, so the one that loses reads the row of the other (without a 409 or a 500)
+    private boolean createCountersIfAbsent(Long userId) {
+        try {
+            return self.createCounters(userId);
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    // a second connection for a moment, only once by user
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean createCounters(Long userId) {
+        if (taskCounterRepository.existsById(userId)) {
+            return false;
+        }
+        TaskCounter counter = new TaskCounter(userId);
+        boolean drift = applyCounts(counter, userId);
+        // persist, not merge: a row inserted meanwhile is a duplicate key, not an update
+        // the insert is at the commit, where its error is translated (DataIntegrityViolationException)
+        entityManager.persist(counter);
+        return drift;
+    }
+
+    @Override
+    public String getGlobalVersion() {
+        return startedAt + "-" + globalVersion.get();
+    }
+
+    @Override
+    @Transactional
+    public boolean recount(Long userId) {
+        TaskCounter counter = taskCounterRepository.findById(userId).orElse(null);
+        if (counter == null) {
+            return createCountersIfAbsent(userId);
+        }
+        // the row is locked so the changes of the tasks wait until the recount finishes
+        // refresh: the managed instance doesn't have the changes done by adjust
+        entityManager.refresh(counter, LockModeType.PESSIMISTIC_WRITE);
+        boolean drift = applyCounts(counter, userId);
+        if (drift) {
+            taskCounterRepository.saveAndFlush(counter);
+        }
+        return drift;
+    }
+
+    // the counts of the tasks table in the counter, true if they were different
+    private boolean applyCounts(TaskCounter counter, Long userId) {
+        Map<TaskStatus, Long> counts = new EnumMap<>(TaskStatus.class);
+        for (TaskStatusCount count : taskRepository.countByStatusForUser(userId)) {
+            counts.put(count.status(), count.total());
+        }
+        boolean drift = false;
+        for (TaskStatus status : TaskStatus.values()) {
+            long count = counts.getOrDefault(status, 0L);
+            if (counter.getCount(status) != count) {
+                drift = true;
+                counter.setCount(status, count);
+            }
+        }
+        if (drift) {
+            // the data that the clients have is wrong too
+            counter.incrementVersion();
+            incrementGlobalVersionAfterCommit();
+        }
+        return drift;
+    }
+
+    @Override
+    public int recountAll() {
+        int corrected = 0;
+        Long lastId = 0L;
+        // by pages of ids, every user is recounted in its own transaction
+        List<Long> ids = entityUserRepository.findIdsAfter(lastId, PageRequest.of(0, 500));
+        while (!ids.isEmpty()) {
+            for (Long id : ids) {
+                if (self.recount(id)) {
+                    corrected++;
+                }
+            }
+            lastId = ids.get(ids.size() - 1);
+            ids = entityUserRepository.findIdsAfter(lastId, PageRequest.of(0, 500));
+        }
+        return corrected;
+    }
+
+    @Override
+    @Transactional
+    public void deleteCounters(Long userId) {
+        if (taskCounterRepository.existsById(userId)) {
+            taskCounterRepository.deleteById(userId);
+        }
+        incrementGlobalVersionAfterCommit();
+    }
+}
@@ -0,0 +1,154 @@
+package com.mindhub.todolist.services.impl;
+
+import com.mindhub.todolist.dtos.TaskEventDTO;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
+import com.mindhub.todolist.events.TaskChangedEvent;
+import com.mindhub.todolist.services.TaskEventBus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class TaskEventBusImpl implements TaskEventBus {
+    private static final Logger logger = LoggerFactory.getLogger(TaskEventBusImpl.class);
+
+    // subscribers by user
+    private final ConcurrentHashMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    // events buffered by subscriber
+    @Value("${todolist.events.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${todolist.events.dispatch-threads:2}")
+    private int dispatchThreads;
+
+    // the events are sent from these threads: a slow client doesn't block the commit of the tasks
+    private ExecutorService dispatcher;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "task-events-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // After the commit: the clients never receive a change that was rolled back
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (event.userId() == null || !subscribers.containsKey(event.userId())) {
+            return; // without subscribers the DTO isn't created
+        }
+        // the summary: the lazy description isn't read after the commit
+        TaskSummaryDTO task = event.task() != null ? new TaskSummaryDTO(event.task()) : null;
+        publish(event.userId(), new TaskEventDTO(event.type(), event.taskId(), event.changeSeq(), task));
+    }
+
+    @Override
+    public Subscription subscribe(Long userId, Listener listener) {
+        Subscriber subscriber = new Subscriber(userId, listener);
+        // compute: atomic with the removal of the last subscriber of the user
+        subscribers.compute(userId, (id, set) -> {
+            Set<Subscriber> userSubscribers = set != null ? set : ConcurrentHashMap.newKeySet();
+            userSubscribers.add(subscriber);
+            return userSubscribers;
+        });
+        return subscriber::cancel;
+    }
+
+    @Override
+    public void publish(Long userId, TaskEventDTO event) {
+        Set<Subscriber> userSubscribers = subscribers.get(userId);
+        if (userSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : userSubscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    @Override
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    private class Subscriber {
+        private final Long userId;
+        private final Listener listener;
+        private final ArrayBlockingQueue<TaskEventDTO> buffer = new ArrayBlockingQueue<>(bufferSize);
+        // only one thread sends the events of a subscriber (in order)
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        Subscriber(Long userId, Listener listener) {
+            this.userId = userId;
+            this.listener = listener;
+        }
+
+        void offer(TaskEventDTO event) {
+            if (cancelled) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                // buffer full: the pending events are dropped, the client has to resync (delta sync)
+                buffer.clear();
+                buffer.offer(TaskEventDTO.resync());
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                TaskEventDTO event;
+                while (!cancelled && (event = buffer.poll()) != null) {
+                    listener.onEvent(event);
+                }
+            } catch (Exception e) {
+                // the connection was closed
+                logger.debug("Task events subscriber of the user {} removed: {}", userId, e.getMessage());
+                cancel();
+            } finally {
+                draining.set(false);
+            }
+            // an event that arrived after the last poll
+            if (!cancelled && !buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            buffer.clear();
+            subscribers.computeIfPresent(userId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+}
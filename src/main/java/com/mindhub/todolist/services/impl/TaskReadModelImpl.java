@@ -0,0 +1,341 @@
+package com.mindhub.todolist.services.impl;
+
+import com.mindhub.todolist.dtos.EntityUserTaskRow;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
+import com.mindhub.todolist.events.TaskChangedEvent;
+import com.mindhub.todolist.events.UserDeletedEvent;
+import com.mindhub.todolist.models.TaskCounter;
+import com.mindhub.todolist.models.TaskStatus;
+import com.mindhub.todolist.repositories.EntityUserRepository;
+import com.mindhub.todolist.repositories.TaskCounterRepository;
+import com.mindhub.todolist.services.TaskReadModel;
+import com.mindhub.todolist.utils.LongObjectMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// The reads of the lists (about 50 by every change) are served from memory, the changes are applied after their commit
+// a user is in memory at a version: any change that doesn't arrive in order (or without event) removes it, the next read loads it again
+@Service
+public class TaskReadModelImpl implements TaskReadModel {
+    private static final Logger logger = LoggerFactory.getLogger(TaskReadModelImpl.class);
+
+    // estimated bytes of a user and of a task without its strings (DTO, Longs, slots of the maps and the list)
+    private static final long USER_OVERHEAD_BYTES = 256;
+    private static final long TASK_OVERHEAD_BYTES = 160;
+    // after an eviction the model is left at this part of the budget: not an eviction by every new user
+    private static final double EVICTION_TARGET = 0.9;
+
+    @Autowired
+    private EntityUserRepository entityUserRepository;
+
+    @Autowired
+    private TaskCounterRepository taskCounterRepository;
+
+    // the proxy of this service, the rebuild reads the DB in a transaction
+    @Autowired
+    @Lazy
+    private TaskReadModel self;
+
+    @Value("${todolist.read-model.enabled:true}")
+    private boolean enabled;
+
+    @Value("${todolist.read-model.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${todolist.read-model.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    // user id -> its tasks, the reads share the lock and the changes take it alone
+    private final LongObjectMap<UserTasks> users = new LongObjectMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long usedBytes;
+
+    // order of the accesses (least recently read users are evicted first)
+    private final AtomicLong clock = new AtomicLong();
+
+    @Override
+    public List<TaskSummaryDTO> getTasks(Long userId, long version) {
+        UserTasks userTasks = get(userId, version);
+        return userTasks != null ? userTasks.snapshot : null;
+    }
+
+    @Override
+    public List<TaskSummaryDTO> getTasks(Long userId, long version, TaskStatus status) {
+        UserTasks userTasks = get(userId, version);
+        if (userTasks == null) {
+            return null;
+        }
+        return userTasks.snapshot.stream().filter(task -> task.status() == status).toList();
+    }
+
+    @Override
+    public Map<TaskStatus, Long> getCounts(Long userId, long version) {
+        UserTasks userTasks = get(userId, version);
+        if (userTasks == null) {
+            return null;
+        }
+        Map<TaskStatus, Long> counts = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : TaskStatus.values()) {
+            counts.put(status, userTasks.counts[status.ordinal()]);
+        }
+        return counts;
+    }
+
+    private UserTasks get(Long userId, long version) {
+        if (!enabled || userId == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            UserTasks userTasks = users.get(userId);
+            if (userTasks == null || userTasks.version != version) {
+                return null;
+            }
+            userTasks.lastAccess = clock.incrementAndGet();
+            return userTasks;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void load(Long userId, long version, List<TaskSummaryDTO> tasks) {
+        // inside a transaction that writes: the rows can be rolled back
+        if (!enabled || userId == null || (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+            return;
+        }
+        UserTasks userTasks = new UserTasks(version, tasks);
+        if (userTasks.bytes > maxBytes) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            UserTasks existing = users.get(userId);
+            // a newer version was already loaded (or applied by the events)
+            if (existing != null && existing.version >= version) {
+                return;
+            }
+            replace(userId, userTasks);
+            evictIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // After the commit, in the order of the commits of the user (its counter row is locked until then)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (!enabled || event.userId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            UserTasks userTasks = users.get(event.userId());
+            if (userTasks == null) {
+                return; // loaded on its next read
+            }
+            // a change without event (e.g. of the profile) or two listeners out of order: the next read loads it
+            if (event.changeSeq() != userTasks.version + 1) {
+                replace(event.userId(), null);
+                return;
+            }
+            LongObjectMap<TaskSummaryDTO> tasks = userTasks.copyTasks();
+            switch (event.type()) {
+                case CREATED, UPDATED -> tasks.put(event.taskId(), new TaskSummaryDTO(event.task()));
+                case DELETED -> tasks.remove(event.taskId());
+            }
+            replace(event.userId(), new UserTasks(event.changeSeq(), tasks.values()));
+            evictIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled || !rebuildOnStartup) {
+            return;
+        }
+        // in the background: the app accepts requests meanwhile (the users not loaded yet go to the DB)
+        Thread thread = new Thread(() -> {
+            try {
+                self.rebuild();
+            } catch (RuntimeException e) {
+                logger.warn("Rebuild of the task read model failed, the users are loaded on their first read", e);
+            }
+        }, "task-read-model-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    @Transactional(readOnly = true) // the cursor is open until the last row
+    public void rebuild() {
+        // the versions before the tasks: a change in between leaves the user at an older version, and its next read loads it
+        LongObjectMap<Long> versions = new LongObjectMap<>();
+        for (TaskCounter counter : taskCounterRepository.findAll()) {
+            versions.put(counter.getUserId(), counter.getVersion());
+        }
+        // ordered by user: the tasks of a user are consecutive
+        try (Stream<EntityUserTaskRow> rows = entityUserRepository.streamAllWithTasks()) {
+            Iterator<EntityUserTaskRow> iterator = rows.iterator();
+            Long userId = null;
+            List<TaskSummaryDTO> tasks = new ArrayList<>();
+            while (iterator.hasNext()) {
+                EntityUserTaskRow row = iterator.next();
+                if (!row.userId().equals(userId)) {
+                    if (userId != null && !rebuildUser(userId, versions.get(userId), tasks)) {
+                        break;
+                    }
+                    userId = row.userId();
+                    tasks = new ArrayList<>();
+                }
+                if (row.task() != null) {
+                    tasks.add(row.task());
+                }
+            }
+            if (userId != null) {
+                rebuildUser(userId, versions.get(userId), tasks);
+            }
+        }
+        logger.info("Task read model rebuilt: {} users, {} bytes", getUserCount(), getUsedBytes());
+    }
+
+    // its tasks were deleted without their events: it isn't kept
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            replace(event.userId(), null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // false: the budget is full, the rest of the users are loaded on their first read
+    private boolean rebuildUser(Long userId, Long version, List<TaskSummaryDTO> tasks) {
+        if (version == null) {
+            return true; // without counters yet: its version is created on its first read
+        }
+        UserTasks userTasks = new UserTasks(version, tasks);
+        lock.writeLock().lock();
+        try {
+            if (usedBytes + userTasks.bytes > maxBytes * EVICTION_TARGET) {
+                return false;
+            }
+            // a user loaded by a read meanwhile has a newer version
+            if (!users.containsKey(userId)) {
+                replace(userId, userTasks);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // with the write lock; null: removes it
+    private void replace(Long userId, UserTasks userTasks) {
+        UserTasks previous = userTasks != null ? users.put(userId, userTasks) : users.remove(userId);
+        if (previous != null) {
+            usedBytes -= previous.bytes;
+        }
+        if (userTasks != null) {
+            userTasks.lastAccess = clock.incrementAndGet();
+            usedBytes += userTasks.bytes;
+        }
+    }
+
+    // with the write lock: the least recently read users until the target
+    private void evictIfNeeded() {
+        if (usedBytes <= maxBytes) {
+            return;
+        }
+        List<Map.Entry<Long, UserTasks>> byAccess = new ArrayList<>(users.size());
+        users.forEach((userId, userTasks) -> byAccess.add(Map.entry(userId, userTasks)));
+        byAccess.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+        for (Map.Entry<Long, UserTasks> entry : byAccess) {
+            if (usedBytes <= maxBytes * EVICTION_TARGET) {
+                break;
+            }
+            replace(entry.getKey(), null);
+        }
+    }
+
+    @Override
+    public int getUserCount() {
+        lock.readLock().lock();
+        try {
+            return users.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getUsedBytes() {
+        lock.readLock().lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The tasks of a user at a version: immutable, a change creates another one (the readers keep the list they got)
+    private static class UserTasks {
+        final long version;
+        final List<TaskSummaryDTO> snapshot;
+        final long[] counts = new long[TaskStatus.values().length];
+        final long bytes;
+        volatile long lastAccess;
+
+        UserTasks(long version, List<TaskSummaryDTO> tasks) {
+            this.version = version;
+            List<TaskSummaryDTO> sorted = new ArrayList<>(tasks);
+            sorted.sort(Comparator.comparing(TaskSummaryDTO::id));
+            this.snapshot = List.copyOf(sorted);
+            long size = USER_OVERHEAD_BYTES;
+            for (TaskSummaryDTO task : snapshot) {
+                if (task.status() != null) {
+                    counts[task.status().ordinal()]++;
+                }
+                size += TASK_OVERHEAD_BYTES + stringBytes(task.title()) + stringBytes(task.clientId());
+            }
+            this.bytes = size;
+        }
+
+        LongObjectMap<TaskSummaryDTO> copyTasks() {
+            LongObjectMap<TaskSummaryDTO> tasks = new LongObjectMap<>(snapshot.size() + 1);
+            for (TaskSummaryDTO task : snapshot) {
+                tasks.put(task.id(), task);
+            }
+            return tasks;
+        }
+
+        private static long stringBytes(String value) {
+            return value == null ? 0 : 40 + 2L * value.length();
+        }
+    }
+}
@@ -2,17 +2,49 @@ package com.mindhub.todolist.services.impl;
 
 import com.mindhub.todolist.dtos.EntityUserDTO;
 import com.mindhub.todolist.dtos.NewTask;
+import com.mindhub.todolist.dtos.SyncOperation;
+import com.mindhub.todolist.dtos.SyncOperationResult;
+import com.mindhub.todolist.dtos.SyncOperationType;
+import com.mindhub.todolist.dtos.SyncResultStatus;
+import com.mindhub.todolist.dtos.TaskChangeType;
+import com.mindhub.todolist.dtos.TaskBatchDTO;
+import com.mindhub.todolist.dtos.TaskChangesDTO;
 import com.mindhub.todolist.dtos.TaskDTO;
+import com.mindhub.todolist.dtos.TaskField;
+import com.mindhub.todolist.dtos.TaskPatch;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
+import com.mindhub.todolist.events.TaskChangedEvent;
+import com.mindhub.todolist.exceptions.NotFoundException;
 import com.mindhub.todolist.models.EntityUser;
 import com.mindhub.todolist.models.Task;
+import com.mindhub.todolist.models.TaskTombstone;
 import com.mindhub.todolist.repositories.EntityUserRepository;
+import com.mindhub.todolist.models.TaskStatus;
+import com.mindhub.todolist.repositories.TaskCounterRepository;
 import com.mindhub.todolist.repositories.TaskRepository;
+import com.mindhub.todolist.repositories.TaskTombstoneRepository;
+import com.mindhub.todolist.services.TaskCounterService;
+import com.mindhub.todolist.services.TaskReadModel;
 import com.mindhub.todolist.services.TaskService;
+import com.mindhub.todolist.utils.SingleFlight;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class TaskServiceImpl implements TaskService {
@@ -20,16 +52,91 @@ public class TaskServiceImpl implements TaskService {
     private TaskRepository taskRepository;
     @Autowired
     private EntityUserRepository entityUserRepository;
+    @Autowired
+    private TaskCounterService taskCounterService;
+    @Autowired
+    private TaskTombstoneRepository taskTombstoneRepository;
+    @Autowired
+    private TaskCounterRepository taskCounterRepository;
+    @Autowired
+    private Validator validator;
+    // the events are delivered after the commit (SSE)
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    // the lists from memory, at the version of the user
+    @Autowired
+    private TaskReadModel taskReadModel;
+
+    // the same my-tasks from several tabs and devices at the same time: one query
+    private final SingleFlight<String, List<TaskSummaryDTO>> tasksByUserFlight = new SingleFlight<>();
+
+    // ids of a query of the multi-get
+    private static final int MULTI_GET_CHUNK_SIZE = 500;
+
+    // operations by sync request (one transaction)
+    @Value("${todolist.sync.max-operations:500}")
+    private int maxSyncOperations;
 
     @Override
     public TaskDTO getTaskDTOById(Long id) {
         return new TaskDTO(getTaskById(id));
     }
+    @Override
+    @Transactional(readOnly = true)
+    public TaskBatchDTO getTasksByIds(List<Long> ids, Long userId) {
+        // without repeated ids, in the order of the request
+        List<Long> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, TaskDTO> found = new HashMap<>();
+        // chunks: a very large IN-list is slow to parse and some databases limit the parameters
+        for (int from = 0; from < uniqueIds.size(); from += MULTI_GET_CHUNK_SIZE) {
+            List<Long> chunk = uniqueIds.subList(from, Math.min(from + MULTI_GET_CHUNK_SIZE, uniqueIds.size()));
+            List<TaskDTO> tasks = userId == null ? taskRepository.findDTOsByIdIn(chunk) : taskRepository.findDTOsByIdInAndUserId(chunk, userId);
+            tasks.forEach(task -> found.put(task.getId(), task));
+        }
+        List<TaskDTO> tasks = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            TaskDTO task = found.get(id);
+            if (task != null) {
+                tasks.add(task);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new TaskBatchDTO(tasks, missing);
+    }
+
+    @Override
+    public Map<String, Object> getTaskFieldsById(Long id, Set<TaskField> fields) {
+        return taskRepository.findFields(fields, null, id).stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Task with ID " + id + " not found"));
+    }
+
+    @Override
+    public List<Map<String, Object>> getTaskFieldsByUserId(Long userId, Set<TaskField> fields) {
+        return taskRepository.findFields(fields, userId, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true) // the cursor is open until the last row
+    public void streamAllTaskFields(Set<TaskField> fields, Consumer<Map<String, Object>> consumer) {
+        try (Stream<Map<String, Object>> rows = taskRepository.streamFields(fields, null, null)) {
+            rows.forEach(consumer);
+        }
+    }
+
     //orElseThrow. ListBlank verify that isn't empty and not a blank space
     @Override
     public Task getTaskById(Long id) {
         return taskRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Task with ID " + id + " not found"));
+                .orElseThrow(() -> new NotFoundException("Task with ID " + id + " not found"));
+    }
+
+    @Override
+    public Long getTaskVersion(Long id) {
+        return taskRepository.findVersionById(id)
+                .orElseThrow(() -> new NotFoundException("Task with ID " + id + " not found"));
     }
 
     @Override
@@ -38,57 +145,267 @@ public class TaskServiceImpl implements TaskService {
     }
 
     @Override
+    @Transactional
     public boolean createNewTask(Long userId, NewTask newTask) {
         EntityUser user = entityUserRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User with ID " + userId + " not found"));
+                .orElseThrow(() -> new NotFoundException("User with ID " + userId + " not found"));
+        createTask(user, newTask, null);
+        return true;
+    }
+
+    private Task createTask(EntityUser user, NewTask newTask, String clientId) {
         // Create the task
         Task task = new Task(newTask.title(), newTask.description(), newTask.status());
         // Associate the user
         task.setUser(user);
+        task.setClientId(clientId);
+        // in the same transaction as the task, before saving it: the task is inserted with its sequence
+        task.setChangeSeq(taskCounterService.taskCreated(user.getId(), task.getStatus()));
         // Save the task
-        saveTask(task);
-        return true;
+        Task savedTask = saveTask(task);
+        if (savedTask != null) {
+            eventPublisher.publishEvent(new TaskChangedEvent(user.getId(), TaskChangeType.CREATED,
+                    savedTask.getId(), savedTask.getChangeSeq(), savedTask));
+        }
+        return savedTask;
+    }
+
+    @Override
+    public List<TaskSummaryDTO> getAllTasksById(Long userId) {
+        long version = taskCounterService.getVersion(userId);
+        List<TaskSummaryDTO> tasks = taskReadModel.getTasks(userId, version);
+        if (tasks != null) {
+            return tasks;
+        }
+        // the version in the key: a call after a change doesn't get the result of a query that started before it
+        // unmodifiable: shared by the calls
+        return tasksByUserFlight.execute(userId + ":" + version, () -> {
+            List<TaskSummaryDTO> loaded = List.copyOf(taskRepository.findSummariesByUserId(userId));
+            taskReadModel.load(userId, version, loaded);
+            return loaded;
+        });
+    }
+
+    @Override
+    public List<TaskSummaryDTO> getTasksByStatus(Long userId, TaskStatus status) {
+        List<TaskSummaryDTO> tasks = taskReadModel.getTasks(userId, taskCounterService.getVersion(userId), status);
+        if (tasks != null) {
+            return tasks;
+        }
+        // the whole list loads the user in the model, the next filters are in memory
+        return getAllTasksById(userId).stream().filter(task -> task.status() == status).toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true) // the cursor is open until the last row
+    public void streamAllTasks(Consumer<TaskSummaryDTO> consumer) {
+        try (Stream<TaskSummaryDTO> tasks = taskRepository.streamAllSummaries()) {
+            tasks.forEach(consumer);
+        }
     }
 
     @Override
-    public List<TaskDTO> getAllTasksById(Long userId) {
-        List<Task> tasks = taskRepository.findByUserId(userId);
-        return tasks.stream().map(TaskDTO::new).toList();
+    @Transactional
+    public TaskChangesDTO getTaskChanges(Long userId, long since) {
+        // the cursor is read before the tasks: a change that enters in between is sent again next time
+        long cursor = taskCounterService.getVersion(userId);
+        // first sync, cursor from the future (another DB) or older than the purged tombstones: all the tasks
+        if (since <= 0 || since > cursor || since < taskCounterService.getPurgedSeq(userId)) {
+            // the full tasks in one query (the description is lazy in the entity)
+            return new TaskChangesDTO(cursor, true, taskRepository.findDTOsByUserId(userId), List.of());
+        }
+        // entities for the changeSeq of the cursor: the descriptions are loaded one by one, but a delta is small
+        List<Task> changed = taskRepository.findByUserIdAndChangeSeqGreaterThanOrderByChangeSeq(userId, since);
+        // the sequences of a user are committed in order: a newer change can move the cursor forward
+        if (!changed.isEmpty()) {
+            cursor = Math.max(cursor, changed.get(changed.size() - 1).getChangeSeq());
+        }
+        List<Long> deleted = taskTombstoneRepository.findTaskIdsDeletedAfter(userId, since);
+        return new TaskChangesDTO(cursor, false, changed.stream().map(TaskDTO::new).toList(), deleted);
     }
 
     @Override
-    public List<TaskDTO> getAllTasks() {
-        return taskRepository.findAll().stream()
-                .map(TaskDTO::new)
-                .collect(Collectors.toList());
+    @Transactional
+    public int purgeTombstones(LocalDateTime before) {
+        // first the horizon of every user, so the old cursors get a full sync
+        taskCounterRepository.markPurged(before);
+        return taskTombstoneRepository.deleteOlderThan(before);
     }
 
     @Override
+    @Transactional
     public void deleteTaskById(Long id) {
-        Task task = getTaskById(id);
-        taskRepository.delete(task);
+        deleteTask(id);
     }
 
     @Override
+    @Transactional
     public boolean updateTask(Long id, TaskDTO updatedTask) {
         Task existingTask = taskRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Task with ID " + id + " not found"));
-        // Updating the task
-        existingTask.setTitle(updatedTask.getTitle());
-        existingTask.setDescription(updatedTask.getDescription());
-        existingTask.setStatus(updatedTask.getStatus());
+                .orElseThrow(() -> new NotFoundException("Task with ID " + id + " not found"));
+        applyUpdate(existingTask, updatedTask.getTitle(), updatedTask.getDescription(), updatedTask.getStatus());
         // Saving the task
         taskRepository.save(existingTask);
         return true;
     }
 
     @Override
+    @Transactional
+    public TaskDTO patchTask(Long id, TaskPatch patch) {
+        Task existingTask = getTaskById(id);
+        // only the fields sent are compared: a change of status doesn't load (nor inflate) the lazy description
+        boolean changed = (patch.title() != null && !patch.title().equals(existingTask.getTitle()))
+                || (patch.description() != null && !patch.description().equals(existingTask.getDescription()))
+                || (patch.status() != null && patch.status() != existingTask.getStatus());
+        // same values (e.g. a toggle sent twice): without UPDATE, nor a new version for the clients
+        if (!changed) {
+            return patchResult(existingTask, patch);
+        }
+        applyUpdate(existingTask, patch.title(), patch.description(), patch.status());
+        // flush: the DTO with the new @Version (@DynamicUpdate: only the changed columns)
+        return patchResult(taskRepository.saveAndFlush(existingTask), patch);
+    }
+
+    // the description only if it was sent, the client already has it (GET /api/user/tasks/{id})
+    private TaskDTO patchResult(Task task, TaskPatch patch) {
+        return new TaskDTO(task.getId(), task.getTitle(), patch.description(), task.getStatus(), task.getVersion(), task.getClientId());
+    }
+
+    // null: the field isn't changed (and the lazy description isn't read)
+    private void applyUpdate(Task existingTask, String title, String description, TaskStatus status) {
+        TaskStatus newStatus = status != null ? status : existingTask.getStatus();
+        if (existingTask.getUser() != null) {
+            // before changing the task (the counters could be recounted from the tasks table)
+            existingTask.setChangeSeq(taskCounterService.taskUpdated(existingTask.getUser().getId(),
+                    existingTask.getStatus(), newStatus));
+        }
+        // Updating the task
+        if (title != null) {
+            existingTask.setTitle(title);
+        }
+        if (description != null) {
+            existingTask.setDescription(description);
+        }
+        existingTask.setStatus(newStatus);
+        if (existingTask.getUser() != null) {
+            eventPublisher.publishEvent(new TaskChangedEvent(existingTask.getUser().getId(), TaskChangeType.UPDATED,
+                    existingTask.getId(), existingTask.getChangeSeq(), existingTask));
+        }
+    }
+
+    @Override
+    @Transactional
     public boolean deleteTask(Long id) {
-        Task task = getTaskById(id);
-        taskRepository.delete(task);
+        removeTask(getTaskById(id));
         return true;
     }
 
+    private void removeTask(Task task) {
+        if (task.getUser() != null) {
+            Long userId = task.getUser().getId();
+            long changeSeq = taskCounterService.taskDeleted(userId, task.getStatus());
+            // the clients learn about the deletion with the delta sync
+            taskTombstoneRepository.save(new TaskTombstone(task.getId(), userId, changeSeq));
+            eventPublisher.publishEvent(new TaskChangedEvent(userId, TaskChangeType.DELETED, task.getId(), changeSeq, null));
+        }
+        taskRepository.delete(task);
+    }
+
+    @Override
+    @Transactional
+    public List<SyncOperationResult> syncTasks(Long userId, List<SyncOperation> operations) {
+        if (operations.size() > maxSyncOperations) {
+            throw new IllegalArgumentException("A sync can have up to " + maxSyncOperations + " operations");
+        }
+        // the user is resolved once for all the operations
+        EntityUser user = entityUserRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("User with ID " + userId + " not found"));
+        List<SyncOperationResult> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            results.add(applyOperation(user, i, operations.get(i)));
+        }
+        return results;
+    }
+
+    // the conflicts and errors of an operation don't stop the others (nor roll back the transaction)
+    private SyncOperationResult applyOperation(EntityUser user, int index, SyncOperation operation) {
+        if (operation.type() == null) {
+            return result(index, operation, SyncResultStatus.INVALID, null, "Operation type is required");
+        }
+        if (operation.type() != SyncOperationType.DELETE) {
+            String invalid = validateTask(operation.task());
+            if (invalid != null) {
+                return result(index, operation, SyncResultStatus.INVALID, null, invalid);
+            }
+        }
+        if (operation.type() == SyncOperationType.CREATE) {
+            if (operation.clientId() != null) {
+                // replay of a create that was already applied (the client didn't get the response)
+                Task existing = taskRepository.findByUserIdAndClientId(user.getId(), operation.clientId()).orElse(null);
+                if (existing != null) {
+                    return result(index, operation, SyncResultStatus.APPLIED, existing, "Task already created");
+                }
+            }
+            Task task = createTask(user, operation.task(), operation.clientId());
+            return result(index, operation, SyncResultStatus.APPLIED, task, null);
+        }
+
+        // UPDATE and DELETE
+        Task task = findSyncTarget(user.getId(), operation);
+        if (task == null) {
+            return result(index, operation, SyncResultStatus.NOT_FOUND, null, "Task not found");
+        }
+        if (task.getUser() == null || !task.getUser().getId().equals(user.getId())) {
+            return result(index, operation, SyncResultStatus.FORBIDDEN, null, "You don't have permission to change this task");
+        }
+        if (operation.baseVersion() != null && !operation.baseVersion().equals(task.getVersion())) {
+            return new SyncOperationResult(index, operation.clientId(), task.getId(), SyncResultStatus.CONFLICT,
+                    task.getVersion(), "The task was changed after version " + operation.baseVersion(), new TaskDTO(task));
+        }
+        if (operation.type() == SyncOperationType.UPDATE) {
+            NewTask data = operation.task();
+            applyUpdate(task, data.title(), data.description(), data.status());
+            // flush: the new version is the base version of the next operation
+            taskRepository.saveAndFlush(task);
+            return result(index, operation, SyncResultStatus.APPLIED, task, null);
+        }
+        Long taskId = task.getId();
+        removeTask(task);
+        return new SyncOperationResult(index, operation.clientId(), taskId, SyncResultStatus.APPLIED, null, null, null);
+    }
+
+    // by id or by the id of the client (the client doesn't know the id of a task created offline)
+    private Task findSyncTarget(Long userId, SyncOperation operation) {
+        if (operation.taskId() != null) {
+            return taskRepository.findById(operation.taskId()).orElse(null);
+        }
+        if (operation.clientId() != null) {
+            return taskRepository.findByUserIdAndClientId(userId, operation.clientId()).orElse(null);
+        }
+        return null;
+    }
+
+    // same validations as the endpoints (annotations of NewTask)
+    private String validateTask(NewTask task) {
+        if (task == null) {
+            return "Task is required";
+        }
+        Set<ConstraintViolation<NewTask>> violations = validator.validate(task);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private SyncOperationResult result(int index, SyncOperation operation, SyncResultStatus status, Task task, String message) {
+        Long taskId = task != null ? task.getId() : operation.taskId();
+        Long version = task != null ? task.getVersion() : null;
+        return new SyncOperationResult(index, operation.clientId(), taskId, status, version, message, null);
+    }
+
     @Override
     public boolean isTaskOwner(Long taskId, String userEmail) {
         Task task = getTaskById(taskId);
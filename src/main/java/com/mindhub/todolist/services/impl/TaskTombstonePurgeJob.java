@@ -0,0 +1,32 @@
+package com.mindhub.todolist.services.impl;
+
+import com.mindhub.todolist.services.TaskService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+// Background job: deletes the old tombstones of the deleted tasks
+// a client with an older cursor gets a full sync
+@Component
+public class TaskTombstonePurgeJob {
+    private static final Logger logger = LoggerFactory.getLogger(TaskTombstonePurgeJob.class);
+
+    @Autowired
+    private TaskService taskService;
+
+    @Value("${todolist.sync.tombstone-retention-days:30}")
+    private int retentionDays;
+
+    @Scheduled(cron = "${todolist.sync.tombstone-purge-cron:0 30 3 * * *}")
+    public void purge() {
+        int purged = taskService.purgeTombstones(LocalDateTime.now().minusDays(retentionDays));
+        if (purged > 0) {
+            logger.info("Purged {} task tombstones", purged);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.mindhub.todolist.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Limit of requests in flight that adapts to the latency (gradient)
+// while the latency is near its long-term average the limit grows (+sqrt(limit)),
+// when the latency goes up (requests waiting for threads or connections) the limit goes down
+public class AdaptiveConcurrencyLimiter {
+    // latency accepted over the long-term average before reducing the limit
+    private static final double TOLERANCE = 2.0;
+    private static final double SMOOTHING = 0.2;
+    // weight of every sample in the long-term average (~ the last 100 requests)
+    private static final double LONG_RTT_WEIGHT = 0.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // only modified in onSample (synchronized)
+    private double estimatedLimit;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    // false: the request has to be rejected (without waiting)
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // rttNanos: time of the request
+    public void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        onSample(Math.max(1, rttNanos), inFlightBefore);
+    }
+
+    private synchronized void onSample(long rtt, int inFlightBefore) {
+        if (longRtt == 0) {
+            longRtt = rtt;
+        } else {
+            longRtt = longRtt * (1 - LONG_RTT_WEIGHT) + rtt * LONG_RTT_WEIGHT;
+        }
+        // after an overload the average comes down faster
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+        // few requests in flight: the latency doesn't say anything about the limit
+        if (inFlightBefore < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
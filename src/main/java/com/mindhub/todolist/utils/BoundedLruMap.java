@@ -0,0 +1,74 @@
+package com.mindhub.todolist.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.ToLongFunction;
+
+// Map in LRU order by access, bounded by the bytes of its entries: the least recently used are removed first
+// the size of an entry is computed when it's put (a value that changes its size is put again)
+// not thread-safe: the caller synchronizes
+public class BoundedLruMap<K, V> {
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final long maxBytes;
+    private final ToLongFunction<V> sizeOf;
+    private long usedBytes;
+
+    public BoundedLruMap(long maxBytes, ToLongFunction<V> sizeOf) {
+        this.maxBytes = maxBytes;
+        this.sizeOf = sizeOf;
+    }
+
+    // also marks it as the most recently used
+    public V get(K key) {
+        return entries.get(key);
+    }
+
+    // returns the previous value (null if there wasn't one), then removes the eldest entries until the bound
+    public V put(K key, V value) {
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            usedBytes -= sizeOf.applyAsLong(previous);
+        }
+        usedBytes += sizeOf.applyAsLong(value);
+        Iterator<V> iterator = entries.values().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            usedBytes -= sizeOf.applyAsLong(iterator.next());
+            iterator.remove();
+        }
+        return previous;
+    }
+
+    public V remove(K key) {
+        V removed = entries.remove(key);
+        if (removed != null) {
+            usedBytes -= sizeOf.applyAsLong(removed);
+        }
+        return removed;
+    }
+
+    public void removeIf(BiPredicate<K, V> filter) {
+        Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, V> entry = iterator.next();
+            if (filter.test(entry.getKey(), entry.getValue())) {
+                usedBytes -= sizeOf.applyAsLong(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+}
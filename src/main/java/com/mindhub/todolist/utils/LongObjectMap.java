@@ -0,0 +1,206 @@
+package com.mindhub.todolist.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Map with primitive long keys (ids): without a Long and a HashMap.Node for every entry
+// open addressing (linear probing) in two arrays, not thread-safe: the caller synchronizes
+public class LongObjectMap<V> {
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int resizeAt;
+
+    // the key 0 is the mark of an empty slot: stored apart
+    private boolean hasZeroKey;
+    private V zeroValue;
+
+    public LongObjectMap() {
+        this(16);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : null;
+        }
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == EMPTY) {
+            return hasZeroKey;
+        }
+        return indexOf(key) >= 0;
+    }
+
+    // returns the previous value (null if there wasn't one)
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == EMPTY) {
+            V previous = zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                return null;
+            }
+            V previous = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            size--;
+            return previous;
+        }
+        int slot = indexOf(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = (V) values[slot];
+        size--;
+        shiftBack(slot);
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Entries<V> action) {
+        if (hasZeroKey) {
+            action.accept(EMPTY, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                action.accept(keys[slot], (V) values[slot]);
+            }
+        }
+    }
+
+    public List<V> values() {
+        List<V> list = new ArrayList<>(size);
+        forEach((key, value) -> list.add(value));
+        return list;
+    }
+
+    @FunctionalInterface
+    public interface Entries<V> {
+        void accept(long key, V value);
+    }
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // deletion without tombstones: the next entries of the run move back to the slots they can take
+    private void shiftBack(int slot) {
+        int mask = keys.length - 1;
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            // the entry can move to the free slot if its home isn't between the free slot and its position (cyclic)
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = EMPTY;
+        values[free] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // the ids are consecutive: mixed so they don't fill runs of slots
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR <= expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
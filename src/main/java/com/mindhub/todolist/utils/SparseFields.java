@@ -0,0 +1,44 @@
+package com.mindhub.todolist.utils;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Sparse fieldsets: fields=id,title,status -> the fields of the response (and of the query)
+public class SparseFields {
+
+    private SparseFields() {
+    }
+
+    // null: the parameter wasn't sent (all the fields, the normal DTO)
+    public static <E extends Enum<E>> EnumSet<E> parse(String fields, Class<E> type, Function<E, String> nameOf) {
+        if (fields == null) {
+            return null;
+        }
+        EnumSet<E> selected = EnumSet.noneOf(type);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            E field = EnumSet.allOf(type).stream()
+                    .filter(candidate -> nameOf.apply(candidate).equals(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown field: " + trimmed));
+            selected.add(field);
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("fields can't be empty");
+        }
+        return selected;
+    }
+
+    // part of the ETag: the same version with other fields is another representation
+    public static <E extends Enum<E>> String etagSuffix(Set<E> fields, Function<E, String> nameOf) {
+        if (fields == null) {
+            return "";
+        }
+        return "-" + fields.stream().map(nameOf).collect(Collectors.joining("."));
+    }
+}
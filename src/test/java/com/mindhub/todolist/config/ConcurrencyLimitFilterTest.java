@@ -0,0 +1,72 @@
+package com.mindhub.todolist.config;
+
+import com.mindhub.todolist.utils.AdaptiveConcurrencyLimiter;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Without the context: one admin slot, the async processing is completed by the test
+public class ConcurrencyLimitFilterTest {
+    private ConcurrencyLimitFilter filter;
+    private AdaptiveConcurrencyLimiter adminLimiter;
+
+    @BeforeEach
+    public void setUp() {
+        filter = new ConcurrencyLimitFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "userReadInitialLimit", 1);
+        ReflectionTestUtils.setField(filter, "userReadMinLimit", 1);
+        ReflectionTestUtils.setField(filter, "userReadMaxLimit", 1);
+        ReflectionTestUtils.setField(filter, "adminInitialLimit", 1);
+        ReflectionTestUtils.setField(filter, "adminMinLimit", 1);
+        ReflectionTestUtils.setField(filter, "adminMaxLimit", 1);
+        ReflectionTestUtils.setField(filter, "defaultInitialLimit", 1);
+        ReflectionTestUtils.setField(filter, "defaultMinLimit", 1);
+        ReflectionTestUtils.setField(filter, "defaultMaxLimit", 1);
+        filter.init();
+        adminLimiter = (AdaptiveConcurrencyLimiter) ReflectionTestUtils.getField(filter, "adminLimiter");
+    }
+
+    private static MockHttpServletRequest adminRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/users");
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    @Test
+    public void testAsyncRequestKeepsTheSlotUntilItCompletes() throws Exception {
+        AtomicReference<AsyncContext> asyncContext = new AtomicReference<>();
+        filter.doFilter(adminRequest(), new MockHttpServletResponse(),
+                (request, response) -> asyncContext.set(request.startAsync()));
+        assertEquals(1, adminLimiter.getInFlight());
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(adminRequest(), rejected, (request, response) -> fail("the limit is full"));
+        assertEquals(503, rejected.getStatus());
+
+        asyncContext.get().complete();
+        assertEquals(0, adminLimiter.getInFlight());
+    }
+
+    @Test
+    public void testAsyncCompletedBeforeTheChainReturnsReleasesOnce() throws Exception {
+        FilterChain chain = (request, response) -> request.startAsync().complete();
+        // released by the listener and not again by the filter: a second release would leave -1
+        filter.doFilter(adminRequest(), new MockHttpServletResponse(), chain);
+        assertEquals(0, adminLimiter.getInFlight());
+
+        // the slot is free for the next one
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(adminRequest(), response, chain);
+        assertEquals(200, response.getStatus());
+        assertEquals(0, adminLimiter.getInFlight());
+    }
+}
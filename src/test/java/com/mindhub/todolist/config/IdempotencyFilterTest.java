@@ -0,0 +1,143 @@
+package com.mindhub.todolist.config;
+
+import com.mindhub.todolist.dtos.NewTask;
+import com.mindhub.todolist.dtos.SyncOperationResult;
+import com.mindhub.todolist.dtos.SyncResultStatus;
+import com.mindhub.todolist.services.EntityUserService;
+import com.mindhub.todolist.services.TaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// small limits: about 16 responses of a create, without the big ones
+@SpringBootTest(properties = {"todolist.idempotency.max-bytes=4096", "todolist.idempotency.max-entry-bytes=1024"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class IdempotencyFilterTest {
+    private static final String EMAIL = "retry@gmail.com";
+    private static final String BODY = "{\"title\":\"Task\",\"description\":\"Desc\",\"status\":\"PENDING\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private TaskService taskService;
+    @MockBean
+    private EntityUserService entityUserService;
+
+    @BeforeEach
+    public void setUp() {
+        when(entityUserService.getEntityUserIdByEmail(EMAIL)).thenReturn(7L);
+        when(taskService.createNewTask(eq(7L), any(NewTask.class))).thenReturn(true);
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testRetryReturnsTheFirstResponse() throws Exception {
+        mockMvc.perform(post("/api/user").header(IdempotencyFilter.HEADER, "key-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isCreated())
+                .andExpect(content().string("Task created successfully"))
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+        mockMvc.perform(post("/api/user").header(IdempotencyFilter.HEADER, "key-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isCreated())
+                .andExpect(content().string("Task created successfully"))
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+
+        verify(taskService, times(1)).createNewTask(eq(7L), any(NewTask.class));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testSameKeyWithAnotherBodyIsRejected() throws Exception {
+        mockMvc.perform(post("/api/user").header(IdempotencyFilter.HEADER, "key-2")
+                        .contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/user").header(IdempotencyFilter.HEADER, "key-2")
+                        .contentType(MediaType.APPLICATION_JSON).content(BODY.replace("Task", "Other")))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.error").exists());
+
+        verify(taskService, times(1)).createNewTask(eq(7L), any(NewTask.class));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testWithoutKeyEveryRequestCreates() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/user").contentType(MediaType.APPLICATION_JSON).content(BODY))
+                    .andExpect(status().isCreated());
+        }
+        verify(taskService, times(2)).createNewTask(eq(7L), any(NewTask.class));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testServerErrorCanBeRetried() throws Exception {
+        when(taskService.createNewTask(eq(7L), any(NewTask.class)))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(true);
+
+        mockMvc.perform(post("/api/user").header(IdempotencyFilter.HEADER, "key-3")
+                        .contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isInternalServerError());
+        mockMvc.perform(post("/api/user").header(IdempotencyFilter.HEADER, "key-3")
+                        .contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testOldestResponsesAreEvictedByBytes() throws Exception {
+        mockMvc.perform(post("/api/user").header(IdempotencyFilter.HEADER, "key-evicted")
+                        .contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isCreated());
+        // more responses than the bytes of the store: the first key is removed
+        for (int i = 0; i < 20; i++) {
+            mockMvc.perform(post("/api/user").header(IdempotencyFilter.HEADER, "key-fill-" + i)
+                            .contentType(MediaType.APPLICATION_JSON).content(BODY))
+                    .andExpect(status().isCreated());
+        }
+        mockMvc.perform(post("/api/user").header(IdempotencyFilter.HEADER, "key-evicted")
+                        .contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+
+        verify(taskService, times(22)).createNewTask(eq(7L), any(NewTask.class));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testBigResponseIsNotKept() throws Exception {
+        // the results of a big sync: more than the max bytes of an entry
+        when(taskService.syncTasks(eq(7L), any())).thenReturn(IntStream.range(0, 30)
+                .mapToObj(i -> new SyncOperationResult(i, "client-" + i, (long) i, SyncResultStatus.APPLIED, 1L, "Applied to the task " + i, null))
+                .toList());
+        String sync = "{\"operations\":[{\"type\":\"DELETE\",\"taskId\":1}]}";
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/user/tasks/sync").header(IdempotencyFilter.HEADER, "key-big")
+                            .contentType(MediaType.APPLICATION_JSON).content(sync))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(30))
+                    .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+        }
+        verify(taskService, times(2)).syncTasks(eq(7L), any());
+    }
+}
@@ -0,0 +1,61 @@
+package com.mindhub.todolist.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// small buckets that don't refill during the test
+@SpringBootTest(properties = {
+        "todolist.rate-limit.auth.capacity=3",
+        "todolist.rate-limit.auth.per-minute=1",
+        "todolist.rate-limit.user.capacity=2",
+        "todolist.rate-limit.user.per-minute=1"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class RateLimitFilterTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    private static RequestPostProcessor ip(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+
+    @Test
+    public void testAnonymousRequestsAreLimitedByIp() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/auth/unknown").with(ip("10.0.0.1")))
+                    .andExpect(status().isNotFound());
+        }
+        mockMvc.perform(get("/api/auth/unknown").with(ip("10.0.0.1")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("$.error").exists());
+        // another IP has its own bucket
+        mockMvc.perform(get("/api/auth/unknown").with(ip("10.0.0.2")))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "limited@gmail.com", authorities = "USER")
+    public void testAuthenticatedRequestsAreLimitedByUser() throws Exception {
+        // the same user from different IPs shares the bucket
+        mockMvc.perform(get("/api/user/email").with(ip("10.0.1.1")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/user/email").with(ip("10.0.1.2")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/user/email").with(ip("10.0.1.3")))
+                .andExpect(status().isTooManyRequests());
+    }
+}
@@ -0,0 +1,201 @@
+package com.mindhub.todolist.config;
+
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
+import com.mindhub.todolist.events.UserDeletedEvent;
+import com.mindhub.todolist.models.TaskStatus;
+import com.mindhub.todolist.services.EntityUserService;
+import com.mindhub.todolist.services.TaskCounterService;
+import com.mindhub.todolist.services.TaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ResponseCacheFilterTest {
+    private static final String EMAIL = "cached@gmail.com";
+    private static final String MY_TASKS = "/api/user/tasks/my-tasks";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ResponseCacheFilter responseCacheFilter;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @MockBean
+    private TaskService taskService;
+    @MockBean
+    private EntityUserService entityUserService;
+    @MockBean
+    private TaskCounterService taskCounterService;
+
+    // headers that only the controller sets (a hit doesn't get to it)
+    @TestConfiguration
+    static class ControllerHeadersConfig {
+        @Bean
+        public WebMvcConfigurer controllerHeaders() {
+            return new WebMvcConfigurer() {
+                @Override
+                public void addInterceptors(InterceptorRegistry registry) {
+                    registry.addInterceptor(new HandlerInterceptor() {
+                        @Override
+                        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+                            response.addHeader("X-Controller", "first");
+                            response.addHeader("X-Controller", "second");
+                            return true;
+                        }
+                    }).addPathPatterns(MY_TASKS);
+                }
+            };
+        }
+    }
+
+    private static Map<String, List<String>> headersOf(MockHttpServletResponse response) {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String name : response.getHeaderNames()) {
+            if (!name.equals(ResponseCacheFilter.CACHE_HEADER)) {
+                headers.put(name, response.getHeaders(name));
+            }
+        }
+        return headers;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        responseCacheFilter.clear();
+        when(entityUserService.getEntityUserIdByEmail(EMAIL)).thenReturn(7L);
+        when(taskCounterService.getVersion(7L)).thenReturn(1L);
+        when(taskService.getAllTasksById(7L)).thenReturn(List.of(new TaskSummaryDTO(1L, "Task", TaskStatus.PENDING, 0L, null)));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testHitDoesNotCallTheService() throws Exception {
+        mockMvc.perform(get(MY_TASKS))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value("Task"))
+                .andExpect(header().doesNotExist(ResponseCacheFilter.CACHE_HEADER));
+        mockMvc.perform(get(MY_TASKS))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value("Task"))
+                .andExpect(header().string(ResponseCacheFilter.CACHE_HEADER, "HIT"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"tasks-7-1\""));
+
+        verify(taskService, times(1)).getAllTasksById(7L);
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testHitHasTheHeadersOfTheMiss() throws Exception {
+        MockHttpServletResponse miss = mockMvc.perform(get(MY_TASKS)).andReturn().getResponse();
+        MockHttpServletResponse hit = mockMvc.perform(get(MY_TASKS))
+                .andExpect(header().string(ResponseCacheFilter.CACHE_HEADER, "HIT"))
+                .andReturn().getResponse();
+
+        assertEquals(List.of("private, no-cache"), miss.getHeaders(HttpHeaders.CACHE_CONTROL));
+        assertEquals(headersOf(miss), headersOf(hit));
+        assertEquals(miss.getContentAsString(), hit.getContentAsString());
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testNewVersionIsAMiss() throws Exception {
+        mockMvc.perform(get(MY_TASKS)).andExpect(status().isOk());
+        when(taskCounterService.getVersion(7L)).thenReturn(2L);
+        when(taskService.getAllTasksById(7L)).thenReturn(List.of(new TaskSummaryDTO(1L, "Changed", TaskStatus.PENDING, 1L, null)));
+
+        mockMvc.perform(get(MY_TASKS))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value("Changed"))
+                .andExpect(header().doesNotExist(ResponseCacheFilter.CACHE_HEADER));
+        mockMvc.perform(get(MY_TASKS))
+                .andExpect(jsonPath("$[0].title").value("Changed"))
+                .andExpect(header().string(ResponseCacheFilter.CACHE_HEADER, "HIT"));
+
+        verify(taskService, times(2)).getAllTasksById(7L);
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testDeletedUserIsEvicted() throws Exception {
+        mockMvc.perform(get(MY_TASKS)).andExpect(status().isOk());
+
+        // the deletion job: the version of the user doesn't change
+        eventPublisher.publishEvent(new UserDeletedEvent(7L));
+
+        mockMvc.perform(get(MY_TASKS))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(ResponseCacheFilter.CACHE_HEADER));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testHitWithTheETagIsNotModified() throws Exception {
+        mockMvc.perform(get(MY_TASKS)).andExpect(status().isOk());
+        mockMvc.perform(get(MY_TASKS).header(HttpHeaders.IF_NONE_MATCH, "\"tasks-7-1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testOtherFieldsAreOtherEntries() throws Exception {
+        mockMvc.perform(get(MY_TASKS)).andExpect(status().isOk());
+        mockMvc.perform(get(MY_TASKS + "?fields=id,title"))
+                .andExpect(header().doesNotExist(ResponseCacheFilter.CACHE_HEADER));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, authorities = "USER")
+    public void testBigResponseIsStoredWithGzip() throws Exception {
+        List<TaskSummaryDTO> tasks = LongStream.rangeClosed(1, 50)
+                .mapToObj(id -> new TaskSummaryDTO(id, "Task number " + id, TaskStatus.PENDING, 0L, null))
+                .toList();
+        when(taskService.getAllTasksById(7L)).thenReturn(tasks);
+        String json = mockMvc.perform(get(MY_TASKS)).andReturn().getResponse().getContentAsString();
+
+        MvcResult hit = mockMvc.perform(get(MY_TASKS).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+        byte[] body = new GZIPInputStream(new ByteArrayInputStream(hit.getResponse().getContentAsByteArray())).readAllBytes();
+        assertEquals(json, new String(body, StandardCharsets.UTF_8));
+
+        // without Accept-Encoding: the body as it is
+        mockMvc.perform(get(MY_TASKS))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string(json));
+    }
+}
@@ -3,23 +3,33 @@ package com.mindhub.todolist.controllers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mindhub.todolist.config.JwtUtils;
 import com.mindhub.todolist.dtos.*;
+import com.mindhub.todolist.exceptions.NotFoundException;
+import com.mindhub.todolist.models.DeletionJob;
+import com.mindhub.todolist.models.DeletionStatus;
 import com.mindhub.todolist.models.EntityUser;
 import com.mindhub.todolist.models.RoleType;
+import com.mindhub.todolist.services.CacheStatsService;
 import com.mindhub.todolist.services.EntityUserService;
+import com.mindhub.todolist.services.TaskCounterService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -27,6 +37,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(AdminController.class)
+@Import(StreamingArrayWriter.class)
 public class AdminControllerTest {
     @Autowired
     private MockMvc mockMvc;
@@ -34,6 +45,12 @@ public class AdminControllerTest {
     @MockBean
     private EntityUserService entityUserService;
 
+    @MockBean
+    private TaskCounterService taskCounterService;
+
+    @MockBean
+    private CacheStatsService cacheStatsService;
+
     @MockBean
     private JwtUtils jwtUtil;
 
@@ -56,21 +73,84 @@ public class AdminControllerTest {
     @Test
     @WithMockUser(username = EMAIL, roles = "ADMIN")
     void getAllUsersShouldReturnUsers() throws Exception {
-        // Mock the service to return a list of users
-        List<EntityUserDTO> users = Collections.singletonList(testAdmin);
-        when(entityUserService.getAllEntityUsers()).thenReturn(users);
+        // Mock the service to give the users of its cursor one by one
+        doAnswer(invocation -> {
+            Consumer<EntityUserDTO> consumer = invocation.getArgument(0);
+            consumer.accept(testAdmin);
+            return null;
+        }).when(entityUserService).streamAllEntityUsers(any());
+        when(taskCounterService.getGlobalVersion()).thenReturn("100-9");
 
         // Perform the request and verify the response
-        mockMvc.perform(get("/api/admin/users")
+        MvcResult result = mockMvc.perform(get("/api/admin/users")
                         .with(SecurityMockMvcRequestPostProcessors.csrf())
                         .header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // the array is written in the async thread while the users are read
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"users-100-9\""))
+                .andExpect(jsonPath("$.length()").value(1))
                 .andExpect(jsonPath("$[0].id").value(testAdmin.getId()))
                 .andExpect(jsonPath("$[0].username").value(testAdmin.getUsername()))
                 .andExpect(jsonPath("$[0].email").value(testAdmin.getEmail()))
                 .andExpect(jsonPath("$[0].role").value(testAdmin.getRole().toString()));
     }
 
+    @Test
+    @WithMockUser(username = EMAIL, roles = "ADMIN")
+    void getAllUsersShouldReturnNotModified() throws Exception {
+        when(taskCounterService.getGlobalVersion()).thenReturn("100-9");
+
+        // Same global version: 304 without loading the users
+        // without starting the stream
+        mockMvc.perform(get("/api/admin/users")
+                        .header("If-None-Match", "\"users-100-9\""))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotModified());
+
+        verify(entityUserService, never()).streamAllEntityUsers(any());
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, roles = "ADMIN")
+    void getAllUsersShouldRejectTheFifthConcurrentStream() throws Exception {
+        // Mock the service to keep its cursor open until the latch
+        CountDownLatch latch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            latch.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(entityUserService).streamAllEntityUsers(any());
+        when(taskCounterService.getGlobalVersion()).thenReturn("100-9");
+
+        // the 4 permits of the admin budget are taken by the open streams
+        List<MvcResult> streams = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            streams.add(mockMvc.perform(get("/api/admin/users")
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(request().asyncStarted())
+                    .andReturn());
+        }
+        mockMvc.perform(get("/api/admin/users")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isServiceUnavailable());
+
+        // the finished streams give back their permits
+        latch.countDown();
+        for (MvcResult stream : streams) {
+            mockMvc.perform(asyncDispatch(stream))
+                    .andExpect(status().isOk());
+        }
+        MvcResult result = mockMvc.perform(get("/api/admin/users")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @WithMockUser(username = EMAIL, roles = "ADMIN")
     void getUserByIdShouldReturnUser() throws Exception {
@@ -92,14 +172,14 @@ public class AdminControllerTest {
     @WithMockUser(username = EMAIL, roles = "ADMIN")
     void getUserByIdShouldReturnNotFound() throws Exception {
         // Mock the service to throw an exception
-        when(entityUserService.getEntityUserDTOById(1L)).thenThrow(new RuntimeException("User not found"));
+        when(entityUserService.getEntityUserDTOById(1L)).thenThrow(new NotFoundException("User not found"));
 
         // Perform the request and verify the response
         mockMvc.perform(get("/api/admin/user/{id}", 1L)
                         .with(SecurityMockMvcRequestPostProcessors.csrf())
                         .header("Authorization", "Bearer " + token))
                 .andExpect(status().isNotFound())
-                .andExpect(content().string("User not found"));
+                .andExpect(jsonPath("$.error").value("User not found"));
     }
 
     @Test
@@ -204,34 +284,89 @@ public class AdminControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(updatedPassword)))
                 .andExpect(status().isBadRequest())
-                .andExpect(content().string("Invalid data provided: Current password is incorrect"));
+                .andExpect(jsonPath("$.error").value("Invalid data provided: Current password is incorrect"));
     }
 
     @Test
     @WithMockUser(username = EMAIL, roles = "ADMIN")
-    void deleteEntityUserShouldDeleteUser() throws Exception {
-        // Mock the service to delete a user
-        when(entityUserService.deleteEntityUser(1L)).thenReturn(true);
+    void deleteEntityUserShouldScheduleDeletion() throws Exception {
+        // Mock the service to schedule the deletion of a user
+        DeletionJob job = new DeletionJob(1L, EMAIL, 3);
+        when(entityUserService.requestEntityUserDeletion(1L)).thenReturn(new DeletionJobDTO(job));
 
         // Perform the request and verify the response
         mockMvc.perform(delete("/api/admin/user/{id}", 1L)
                         .with(SecurityMockMvcRequestPostProcessors.csrf())
                         .header("Authorization", "Bearer " + token))
-                .andExpect(status().isOk())
-                .andExpect(content().string("User deleted successfully"));
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.userId").value(1L))
+                .andExpect(jsonPath("$.status").value(DeletionStatus.PENDING.toString()))
+                .andExpect(jsonPath("$.totalTasks").value(3));
     }
 
     @Test
     @WithMockUser(username = EMAIL, roles = "ADMIN")
     void deleteEntityUserShouldReturnNotFound() throws Exception {
-        // Mock the service to return false for deletion
-        when(entityUserService.deleteEntityUser(1L)).thenReturn(false);
+        // Mock the service to throw an exception
+        when(entityUserService.requestEntityUserDeletion(1L)).thenThrow(new NotFoundException("User not found"));
 
         // Perform the request and verify the response
         mockMvc.perform(delete("/api/admin/user/{id}", 1L)
                         .with(SecurityMockMvcRequestPostProcessors.csrf())
                         .header("Authorization", "Bearer " + token))
                 .andExpect(status().isNotFound())
-                .andExpect(content().string("User not found"));
+                .andExpect(jsonPath("$.error").value("User not found"));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, roles = "ADMIN")
+    void getAllDeletionJobsShouldReturnProgress() throws Exception {
+        // Mock the service to return a job in progress
+        DeletionJob job = new DeletionJob(1L, EMAIL, 3);
+        job.setStatus(DeletionStatus.RUNNING);
+        job.addDeletedTasks(2);
+        when(entityUserService.getAllDeletionJobs()).thenReturn(List.of(new DeletionJobDTO(job)));
+
+        // Perform the request and verify the response
+        mockMvc.perform(get("/api/admin/deletions")
+                        .with(SecurityMockMvcRequestPostProcessors.csrf())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(DeletionStatus.RUNNING.toString()))
+                .andExpect(jsonPath("$[0].deletedTasks").value(2))
+                .andExpect(jsonPath("$[0].email").value(EMAIL));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, roles = "ADMIN")
+    void recountAllShouldReturnCorrectedUsers() throws Exception {
+        // Mock the service to correct the counters of 2 users
+        when(taskCounterService.recountAll()).thenReturn(2);
+
+        // Perform the request and verify the response
+        MvcResult result = mockMvc.perform(post("/api/admin/counters/recount")
+                        .with(SecurityMockMvcRequestPostProcessors.csrf())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // the admin executor completes the request
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Counters corrected for 2 users"));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, roles = "ADMIN")
+    void getCacheStatsShouldReturnRegions() throws Exception {
+        // Mock the service to return the counters of a region
+        when(cacheStatsService.getSecondLevelCacheStats()).thenReturn(List.of(new CacheRegionStatsDTO("users", 3, 1, 1, 0.75)));
+
+        // Perform the request and verify the response
+        mockMvc.perform(get("/api/admin/cache/stats")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].region").value("users"))
+                .andExpect(jsonPath("$[0].hits").value(3))
+                .andExpect(jsonPath("$[0].hitRatio").value(0.75));
     }
-}
\ No newline at end of file
+}
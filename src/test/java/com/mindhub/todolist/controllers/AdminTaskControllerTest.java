@@ -1,14 +1,21 @@
 package com.mindhub.todolist.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.mindhub.todolist.config.JwtUtils;
 import com.mindhub.todolist.dtos.EntityUserDTO;
+import com.mindhub.todolist.dtos.TaskBatchDTO;
 import com.mindhub.todolist.dtos.TaskDTO;
+import com.mindhub.todolist.dtos.TaskField;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
 import com.mindhub.todolist.dtos.NewTask;
+import com.mindhub.todolist.exceptions.NotFoundException;
 import com.mindhub.todolist.models.EntityUser;
 import com.mindhub.todolist.models.RoleType;
 import com.mindhub.todolist.models.Task;
 import com.mindhub.todolist.models.TaskStatus;
+import com.mindhub.todolist.services.TaskCounterService;
 import com.mindhub.todolist.services.TaskService;
 import com.mindhub.todolist.services.EntityUserService;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,22 +24,32 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(AdminTaskController.class)
+@Import(StreamingArrayWriter.class)
 public class AdminTaskControllerTest {
 
     @Autowired
@@ -44,6 +61,9 @@ public class AdminTaskControllerTest {
     @MockBean
     private EntityUserService entityUserService;
 
+    @MockBean
+    private TaskCounterService taskCounterService;
+
     @MockBean
     private JwtUtils jwtUtil;
 
@@ -51,6 +71,7 @@ public class AdminTaskControllerTest {
     private ObjectMapper objectMapper;
 
     private TaskDTO testTask;
+    private TaskSummaryDTO testSummary;
     private EntityUserDTO testUser;
     private String token;
     private final String EMAIL = "miguel@gmail.com";
@@ -73,6 +94,7 @@ public class AdminTaskControllerTest {
         when(task.getUser()).thenReturn(user);
         user.addTask(task);
         testTask = new TaskDTO(task);
+        testSummary = new TaskSummaryDTO(task);
         testUser = new EntityUserDTO(user);
 
         EntityUser adminUser = Mockito.mock(EntityUser.class);
@@ -95,7 +117,7 @@ public class AdminTaskControllerTest {
     @WithMockUser(username = EMAIL)
     void getAllTasksByIdShouldReturnTasksFromUser() throws Exception {
         // Mock the service to return a list of tasks
-        List<TaskDTO> tasks =  Collections.singletonList(testTask);
+        List<TaskSummaryDTO> tasks = Collections.singletonList(testSummary);
         when(taskService.getAllTasksById(eq(2L))).thenReturn(tasks);
 
         // Perform the request and verify the response
@@ -105,57 +127,131 @@ public class AdminTaskControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].id").value(testTask.getId()))
                 .andExpect(jsonPath("$[0].title").value(testTask.getTitle()))
-                .andExpect(jsonPath("$[0].description").value(testTask.getDescription()))
+                .andExpect(jsonPath("$[0].description").doesNotExist())
                 .andExpect(jsonPath("$[0].status").value(testTask.getStatus().toString()));
     }
 
     @Test
     @WithMockUser(username = EMAIL, roles = "ADMIN")
     void getAllTasksShouldReturnAllTasks() throws Exception {
-        // Mock the service to return a list of tasks
-        List<TaskDTO> tasks = Collections.singletonList(testTask);
-        when(taskService.getAllTasks()).thenReturn(tasks);
+        // Mock the service to give the tasks of its cursor one by one
+        streamTasks(testSummary, testSummary);
 
         // Perform the request and verify the response
-        mockMvc.perform(MockMvcRequestBuilders.get("/api/admin/tasks")
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/admin/tasks")
                         .with(SecurityMockMvcRequestPostProcessors.csrf())
                         .header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // the array is written in the async thread while the tasks are read
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(2))
                 .andExpect(jsonPath("$[0].id").value(testTask.getId()))
                 .andExpect(jsonPath("$[0].title").value(testTask.getTitle()))
-                .andExpect(jsonPath("$[0].description").value(testTask.getDescription()))
+                .andExpect(jsonPath("$[0].description").doesNotExist())
                 .andExpect(jsonPath("$[0].status").value(testTask.getStatus().toString()));
     }
 
+    @Test
+    @WithMockUser(username = EMAIL, roles = "ADMIN")
+    void getAllTasksShouldStreamTheFieldsInCbor() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("title", "Title");
+        doAnswer(invocation -> {
+            Consumer<Map<String, Object>> consumer = invocation.getArgument(1);
+            consumer.accept(row);
+            return null;
+        }).when(taskService).streamAllTaskFields(eq(EnumSet.of(TaskField.ID, TaskField.TITLE)), any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/admin/tasks")
+                        .param("fields", "id,title")
+                        .accept("application/cbor"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] cbor = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode tasks = new CBORMapper().readTree(cbor);
+        assertEquals(1, tasks.size());
+        assertEquals("Title", tasks.get(0).get("title").asText());
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, roles = "ADMIN")
+    void getTasksByIdsShouldReturnTasksAndMissing() throws Exception {
+        when(taskService.getTasksByIds(List.of(1L, 2L), null)).thenReturn(new TaskBatchDTO(List.of(testTask), List.of(2L)));
+
+        // with ids: the multi-get, not the list of all tasks
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/admin/tasks")
+                        .param("ids", "1", "2")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks[0].id").value(testTask.getId()))
+                .andExpect(jsonPath("$.missing[0]").value(2));
+    }
+
     @Test
     @WithMockUser(username = EMAIL, roles = "ADMIN")
     void getTaskByIdShouldReturnTask() throws Exception {
         // Mock the service to return a task
         when(taskService.getTaskDTOById(1L)).thenReturn(testTask);
+        when(taskService.getTaskVersion(1L)).thenReturn(4L);
 
         // Perform the request and verify the response
         mockMvc.perform(MockMvcRequestBuilders.get("/api/admin/tasks/{id}", 1L)
                         .with(SecurityMockMvcRequestPostProcessors.csrf())
                         .header("Authorization", "Bearer " + token))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"task-1-4\""))
                 .andExpect(jsonPath("$.id").value(testTask.getId()))
                 .andExpect(jsonPath("$.title").value(testTask.getTitle()))
                 .andExpect(jsonPath("$.description").value(testTask.getDescription()))
                 .andExpect(jsonPath("$.status").value(testTask.getStatus().toString()));
     }
 
+    @Test
+    @WithMockUser(username = EMAIL, roles = "ADMIN")
+    void getTaskByIdShouldReturnNotModified() throws Exception {
+        when(taskService.getTaskVersion(1L)).thenReturn(4L);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/admin/tasks/{id}", 1L)
+                        .header("If-None-Match", "\"task-1-4\""))
+                .andExpect(status().isNotModified());
+
+        Mockito.verify(taskService, Mockito.never()).getTaskDTOById(any());
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL, roles = "ADMIN")
+    void getAllTasksShouldReturnNotModified() throws Exception {
+        when(taskCounterService.getGlobalVersion()).thenReturn("100-9");
+
+        // without starting the stream
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/admin/tasks")
+                        .header("If-None-Match", "\"tasks-100-9\""))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotModified());
+
+        Mockito.verify(taskService, Mockito.never()).streamAllTasks(any());
+    }
+
     @Test
     @WithMockUser(username = EMAIL, roles = "ADMIN")
     void getTaskByIdShouldReturnNotFound() throws Exception {
         // Mock the service to throw an exception
-        when(taskService.getTaskDTOById(1L)).thenThrow(new RuntimeException("Task not found"));
+        when(taskService.getTaskVersion(1L)).thenThrow(new NotFoundException("Task not found"));
 
         // Perform the request and verify the response
         mockMvc.perform(MockMvcRequestBuilders.get("/api/admin/tasks/{id}", 1L)
                         .with(SecurityMockMvcRequestPostProcessors.csrf())
                         .header("Authorization", "Bearer " + token))
                 .andExpect(status().isNotFound())
-                .andExpect(content().string("Task not found"));
+                .andExpect(jsonPath("$.error").value("Task not found"));
     }
 
     @Test
@@ -192,7 +288,7 @@ public class AdminTaskControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(newTask)))
                 .andExpect(status().isForbidden())
-                .andExpect(content().string("You can't create a task for an administrator"));
+                .andExpect(jsonPath("$.error").value("You can't create a task for an administrator"));
     }
 
     @Test
@@ -227,4 +323,14 @@ public class AdminTaskControllerTest {
                 .andExpect(content().string("Task deleted successfully"));
     }
 
-}
\ No newline at end of file
+
+    private void streamTasks(TaskSummaryDTO... tasks) {
+        doAnswer(invocation -> {
+            Consumer<TaskSummaryDTO> consumer = invocation.getArgument(0);
+            for (TaskSummaryDTO task : tasks) {
+                consumer.accept(task);
+            }
+            return null;
+        }).when(taskService).streamAllTasks(any());
+    }
+}
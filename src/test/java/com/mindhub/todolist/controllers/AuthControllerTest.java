@@ -5,6 +5,7 @@ import com.mindhub.todolist.config.JwtUtils;
 import com.mindhub.todolist.dtos.LoginRequest;
 import com.mindhub.todolist.dtos.NewEntityUser;
 import com.mindhub.todolist.services.EntityUserService;
+import com.mindhub.todolist.services.TaskCounterService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,6 +40,9 @@ public class AuthControllerTest {
     // MockBean to mock the JwtUtils dependency for JWT token handling
     @MockBean
     private JwtUtils jwtUtil;
+    // MockBean for the filters of the context (cache of the responses)
+    @MockBean
+    private TaskCounterService taskCounterService;
     // Autowired to inject ObjectMapper for JSON serialization/deserialization
     @Autowired
     private ObjectMapper objectMapper;
@@ -0,0 +1,204 @@
+package com.mindhub.todolist.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindhub.todolist.config.JwtUtils;
+import com.mindhub.todolist.dtos.TaskBatchDTO;
+import com.mindhub.todolist.dtos.TaskDTO;
+import com.mindhub.todolist.dtos.TaskPatch;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
+import com.mindhub.todolist.models.Task;
+import com.mindhub.todolist.models.TaskStatus;
+import com.mindhub.todolist.services.EntityUserService;
+import com.mindhub.todolist.services.TaskCounterService;
+import com.mindhub.todolist.services.TaskService;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+// A real server: the sub-requests go through the filters and the DispatcherServlet of the application
+// a small rate limit of the users: the sub-requests of all the tests of a user fit in it
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"todolist.rate-limit.user.capacity=10", "todolist.rate-limit.user.per-minute=10"})
+@ActiveProfiles("test")
+public class BatchControllerTest {
+    private static final String EMAIL = "batch@gmail.com";
+    private static final String ADMIN_EMAIL = "batch-admin@gmail.com";
+    private static final String LIMITED_EMAIL = "batch-limited@gmail.com";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private JwtUtils jwtUtils;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @MockBean
+    private UserDetailsService userDetailsService;
+    @MockBean
+    private TaskService taskService;
+    @MockBean
+    private EntityUserService entityUserService;
+    @MockBean
+    private TaskCounterService taskCounterService;
+
+    private TaskDTO taskDTO;
+
+    // a filter that the batch doesn't know: it's in the chain of the sub-requests like in the one of a request
+    @TestConfiguration
+    static class ExtraFilterConfig {
+        @Bean
+        public Filter headerCountFilter() {
+            return (request, response, chain) -> {
+                if (((HttpServletRequest) request).getRequestURI().startsWith("/api/user/")) {
+                    ((HttpServletResponse) response).setHeader("X-Test-Count",
+                            String.valueOf(Collections.list(((HttpServletRequest) request).getHeaders("X-Test")).size()));
+                }
+                chain.doFilter(request, response);
+            };
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        when(userDetailsService.loadUserByUsername(EMAIL))
+                .thenReturn(User.withUsername(EMAIL).password("secret").authorities("USER").build());
+        when(userDetailsService.loadUserByUsername(ADMIN_EMAIL))
+                .thenReturn(User.withUsername(ADMIN_EMAIL).password("secret").authorities("ADMIN").build());
+        when(userDetailsService.loadUserByUsername(LIMITED_EMAIL))
+                .thenReturn(User.withUsername(LIMITED_EMAIL).password("secret").authorities("USER").build());
+        when(entityUserService.getEntityUserIdByEmail(EMAIL)).thenReturn(7L);
+        when(taskCounterService.getVersion(7L)).thenReturn(3L);
+
+        Task task = Mockito.spy(new Task("Title", "Description", TaskStatus.PENDING));
+        when(task.getId()).thenReturn(1L);
+        taskDTO = new TaskDTO(task);
+    }
+
+    private JsonNode batch(String email, String requests) throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(jwtUtils.generateToken(email));
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/batch",
+                new HttpEntity<>("{\"requests\":" + requests + "}", headers), String.class);
+        JsonNode body = objectMapper.readTree(response.getBody());
+        return response.getStatusCode().value() == 200 ? body : objectMapper.createObjectNode().put("status", response.getStatusCode().value());
+    }
+
+    @Test
+    public void testReadsAndWriteInOneBatch() throws Exception {
+        when(taskService.getAllTasksById(7L)).thenReturn(List.of(new TaskSummaryDTO(1L, "Title", TaskStatus.PENDING, 0L, null)));
+        when(taskService.getTasksByIds(List.of(1L, 2L), 7L)).thenReturn(new TaskBatchDTO(List.of(taskDTO), List.of(2L)));
+        when(taskService.isTaskOwner(1L, EMAIL)).thenReturn(true);
+        when(taskService.patchTask(1L, new TaskPatch(null, null, TaskStatus.COMPLETED))).thenReturn(taskDTO);
+
+        JsonNode results = batch(EMAIL, "[" +
+                "{\"method\":\"GET\",\"path\":\"/api/user/tasks/my-tasks\"}," +
+                "{\"method\":\"GET\",\"path\":\"/api/user/tasks?ids=1,2\"}," +
+                "{\"method\":\"PATCH\",\"path\":\"/api/user/tasks/1\",\"body\":{\"status\":\"COMPLETED\"}}," +
+                "{\"method\":\"GET\",\"path\":\"/api/user/tasks/my-tasks\",\"headers\":{\"If-None-Match\":\"\\\"tasks-7-3\\\"\"}}]");
+
+        // in the order of the requests
+        assertEquals(4, results.size());
+        assertEquals(200, results.get(0).get("status").asInt());
+        assertEquals("\"tasks-7-3\"", results.get(0).get("headers").get("ETag").asText());
+        assertEquals("Title", results.get(0).get("body").get(0).get("title").asText());
+        assertEquals(2, results.get(1).get("body").get("missing").get(0).asLong());
+        assertEquals(200, results.get(2).get("status").asInt());
+        assertEquals(304, results.get(3).get("status").asInt());
+    }
+
+    @Test
+    public void testSubRequestsKeepTheirErrors() throws Exception {
+        when(taskService.isTaskOwner(5L, EMAIL)).thenReturn(false);
+
+        JsonNode results = batch(EMAIL, "[" +
+                "{\"method\":\"GET\",\"path\":\"/api/admin/tasks/1\"}," +
+                "{\"method\":\"DELETE\",\"path\":\"/api/user/tasks/5\"}," +
+                "{\"method\":\"GET\",\"path\":\"/api/user/tasks?ids=1,a\"}]");
+
+        // the rules of SecurityConfig apply to each path
+        assertEquals(403, results.get(0).get("status").asInt());
+        assertEquals(403, results.get(1).get("status").asInt());
+        assertEquals("You don't have permission to delete this task", results.get(1).get("body").get("error").asText());
+        assertEquals(400, results.get(2).get("status").asInt());
+    }
+
+    @Test
+    public void testEverySubRequestIsRateLimited() throws Exception {
+        when(entityUserService.getEntityUserIdByEmail(LIMITED_EMAIL)).thenReturn(8L);
+        when(taskCounterService.getVersion(8L)).thenReturn(1L);
+
+        // more reads than the burst of the user: the batch doesn't get around the limit
+        String reads = "[" + String.join(",", Collections.nCopies(12, "{\"method\":\"GET\",\"path\":\"/api/user/tasks/my-tasks\"}")) + "]";
+        JsonNode results = batch(LIMITED_EMAIL, reads);
+
+        List<Integer> statuses = new ArrayList<>();
+        results.forEach(result -> statuses.add(result.get("status").asInt()));
+        assertEquals(10, Collections.frequency(statuses, 200));
+        assertEquals(2, Collections.frequency(statuses, 429));
+    }
+
+    @Test
+    public void testRegisteredFiltersSeeAllTheHeaderValues() throws Exception {
+        JsonNode results = batch(EMAIL, "[" +
+                "{\"method\":\"GET\",\"path\":\"/api/user/email\",\"headers\":{\"X-Test\":[\"a\",\"b\"]}}," +
+                "{\"method\":\"GET\",\"path\":\"/api/user/email\",\"headers\":{\"X-Test\":\"a\"}}]");
+
+        assertEquals("2", results.get(0).get("headers").get("X-Test-Count").asText());
+        assertEquals("1", results.get(1).get("headers").get("X-Test-Count").asText());
+    }
+
+    @Test
+    public void testInvalidHeaderValuesAreIgnored() {
+        BatchSubRequest subRequest = new BatchSubRequest(new MockHttpServletRequest(), "GET", "/api/user/profile",
+                Map.of("Max-Forwards", List.of("abc"), "If-Modified-Since", List.of("yesterday")), new byte[0]);
+
+        assertEquals(-1, subRequest.getIntHeader("Max-Forwards"));
+        assertEquals(-1, subRequest.getDateHeader("If-Modified-Since"));
+        assertEquals(-1, subRequest.getIntHeader("Content-Length"));
+    }
+
+    @Test
+    public void testAsyncEndpointIsNotSupported() throws Exception {
+        // more times than the admin permits: the permit of a listing that can't start is released
+        for (int i = 0; i < 5; i++) {
+            JsonNode results = batch(ADMIN_EMAIL, "[{\"method\":\"GET\",\"path\":\"/api/admin/tasks\"}]");
+
+            assertEquals(501, results.get(0).get("status").asInt());
+        }
+    }
+
+    @Test
+    public void testInvalidBatchIsRejected() throws Exception {
+        // a batch inside a batch
+        assertEquals(400, batch(EMAIL, "[{\"method\":\"POST\",\"path\":\"/api/batch\"}]").get("status").asInt());
+        // more than todolist.batch.max-requests
+        String tooMany = "[" + String.join(",", Collections.nCopies(21, "{\"method\":\"GET\",\"path\":\"/api/user/tasks/my-tasks\"}")) + "]";
+        assertEquals(400, batch(EMAIL, tooMany).get("status").asInt());
+    }
+}
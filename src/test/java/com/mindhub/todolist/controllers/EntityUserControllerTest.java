@@ -3,8 +3,11 @@ package com.mindhub.todolist.controllers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mindhub.todolist.config.JwtUtils;
 import com.mindhub.todolist.dtos.*;
+import com.mindhub.todolist.exceptions.NotFoundException;
 import com.mindhub.todolist.models.EntityUser;
+import com.mindhub.todolist.models.TaskStatus;
 import com.mindhub.todolist.services.EntityUserService;
+import com.mindhub.todolist.services.TaskCounterService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +18,11 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
 import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -22,7 +30,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 // This annotation is used to test Spring MVC controllers,
 // focusing only on the web layer
-@WebMvcTest(EntityUserController.class)
+@WebMvcTest(value = EntityUserController.class, properties = "todolist.response-cache.enabled=false") // the responses are checked, not the cache
 public class EntityUserControllerTest {
     // Autowired to inject MockMvc for simulating HTTP requests
     @Autowired
@@ -30,6 +38,9 @@ public class EntityUserControllerTest {
     // MockBean to mock the EntityUserService dependency
     @MockBean
     private EntityUserService entityUserService;
+    // MockBean for the versions of the user (ETags)
+    @MockBean
+    private TaskCounterService taskCounterService;
     // MockBean to mock the JwtUtils dependency for JWT token handling
     @MockBean
     private JwtUtils jwtUtil;
@@ -40,6 +51,8 @@ public class EntityUserControllerTest {
     private EntityUserDTO testUser;
     // Constant for the test user's email
     private final String EMAIL = "dario@gmail.com";
+    // Id of the test user (the DTO has no id, it isn't persisted)
+    private final Long USER_ID = 5L;
     // JWT token for authentication
     private String token;
     // This method runs before each test to set up initial data
@@ -48,6 +61,9 @@ public class EntityUserControllerTest {
         // Create a test user and its DTO
         EntityUser user = new EntityUser("Dario7", "12345678", EMAIL);
         testUser = new EntityUserDTO(user);
+        // Id and version of the authenticated user
+        when(entityUserService.getEntityUserIdByEmail(EMAIL)).thenReturn(USER_ID);
+        when(taskCounterService.getVersion(USER_ID)).thenReturn(3L);
         // Generate a JWT token for the test user
         token = jwtUtil.generateToken(EMAIL);
     }
@@ -68,21 +84,75 @@ public class EntityUserControllerTest {
 
         mockMvc.perform(get("/api/user/profile"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"profile-5-3\""))
                 .andExpect(jsonPath("$.id").value(testUser.getId())) // Verify the ID matches
                 .andExpect(jsonPath("$.username").value(testUser.getUsername())) // Verify the username matches
                 .andExpect(jsonPath("$.email").value(testUser.getEmail()))
                 .andExpect(jsonPath("$.role").value(testUser.getRole().toString()));
     }
+    // Test to verify that fields narrows the profile (and changes the ETag)
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getProfileShouldReturnOnlyTheFields() throws Exception {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("id", 5L);
+        fields.put("username", "Miguel7");
+        when(entityUserService.getEntityUserFieldsByEmail(EMAIL, EnumSet.of(UserField.ID, UserField.USERNAME))).thenReturn(fields);
+
+        mockMvc.perform(get("/api/user/profile").param("fields", "username,id"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"profile-5-3-id.username\""))
+                .andExpect(jsonPath("$.username").value("Miguel7"))
+                .andExpect(jsonPath("$.tasks").doesNotExist());
+        verify(entityUserService, never()).getEntityUserDTOByEmail(anyString());
+    }
+    // Test to verify that an unknown field is a 400
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getProfileShouldReturnBadRequestForUnknownField() throws Exception {
+        mockMvc.perform(get("/api/user/profile").param("fields", "id,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid data provided: Unknown field: password"));
+    }
+    // Test to verify that the /api/user/profile endpoint returns a 304 if the version didn't change
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getProfileShouldReturnNotModified() throws Exception {
+        mockMvc.perform(get("/api/user/profile").header("If-None-Match", "\"profile-5-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        // The profile (and its tasks) is not loaded
+        verify(entityUserService, never()).getEntityUserDTOByEmail(anyString());
+    }
     // Test to verify that the /api/user/profile endpoint returns a 404 when the user is not found
     @Test
     @WithMockUser(username = EMAIL)
     void getProfileShouldReturnNotFound() throws Exception {
         // Mock the service to throw an exception when the user is not found
-        when(entityUserService.getEntityUserDTOByEmail(EMAIL)).thenThrow(new RuntimeException("User not found"));
+        when(entityUserService.getEntityUserDTOByEmail(EMAIL)).thenThrow(new NotFoundException("User not found"));
 
         mockMvc.perform(get("/api/user/profile"))
                 .andExpect(status().isNotFound()) // Expect HTTP 404 status
-                .andExpect(content().string("User not found"));
+                .andExpect(jsonPath("$.error").value("User not found"));
+    }
+    // Test to verify that the /api/user/profile/summary endpoint returns the counts by status
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getProfileSummaryShouldReturnCounts() throws Exception {
+        // Mock the service to return the summary of the test user
+        EntityUser user = new EntityUser("Dario7", "12345678", EMAIL);
+        EntityUserSummaryDTO summary = new EntityUserSummaryDTO(user, Map.of(TaskStatus.PENDING, 2L, TaskStatus.COMPLETED, 1L));
+        when(entityUserService.getEntityUserSummaryByEmail(EMAIL)).thenReturn(summary);
+
+        mockMvc.perform(get("/api/user/profile/summary"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"summary-5-3\""))
+                .andExpect(jsonPath("$.username").value("Dario7"))
+                .andExpect(jsonPath("$.totalTasks").value(3))
+                .andExpect(jsonPath("$.tasksByStatus.PENDING").value(2))
+                .andExpect(jsonPath("$.tasksByStatus.IN_PROGRESS").value(0))
+                .andExpect(jsonPath("$.tasksByStatus.COMPLETED").value(1))
+                .andExpect(jsonPath("$.tasks").doesNotExist()); // Without the task list
     }
     // Test to verify that the /api/user/profile endpoint updates the user's profile
     @Test
@@ -90,8 +160,7 @@ public class EntityUserControllerTest {
     void updateProfileShouldUpdateUserProfile() throws Exception {
         // Create a DTO with updated username and email
         UpdateEntityUserUsernameEmailDTO updateDto = new UpdateEntityUserUsernameEmailDTO("newname", "newemail@example.com");
-        // Mock the service to return the test user and confirm the update
-        when(entityUserService.getEntityUserDTOByEmail(EMAIL)).thenReturn(testUser);
+        // Mock the service to confirm the update
         when(entityUserService.updateEntityUserUsernameEmail(anyLong(), any(UpdateEntityUserUsernameEmailDTO.class))).thenReturn(true);
 
         mockMvc.perform(put("/api/user/profile")
@@ -109,7 +178,6 @@ public class EntityUserControllerTest {
         // Create a DTO with invalid data
         UpdateEntityUserUsernameEmailDTO updateDto = new UpdateEntityUserUsernameEmailDTO(null, "invalid-email");
         // Mock the service to throw an exception for invalid data
-        when(entityUserService.getEntityUserDTOByEmail(EMAIL)).thenReturn(testUser);
         when(entityUserService.updateEntityUserUsernameEmail(anyLong(), any(UpdateEntityUserUsernameEmailDTO.class)))
                 .thenThrow(new IllegalArgumentException("Invalid data provided"));
 
@@ -128,9 +196,8 @@ public class EntityUserControllerTest {
     void updatePasswordShouldUpdateUserPassword() throws Exception {
         // Create a DTO with the current and new password
         UpdateEntityUserPasswordDTO updateDto = new UpdateEntityUserPasswordDTO("12345678", "newpassword");
-        // Mock the service to return the test user and confirm the password update
-        when(entityUserService.getEntityUserDTOByEmail(EMAIL)).thenReturn(testUser);
-        when(entityUserService.updateEntityUserPassword(eq(testUser.getId()), any(UpdateEntityUserPasswordDTO.class))).thenReturn(true);
+        // Mock the service to confirm the password update
+        when(entityUserService.updateEntityUserPassword(eq(USER_ID), any(UpdateEntityUserPasswordDTO.class))).thenReturn(true);
 
         mockMvc.perform(put("/api/user/profile/password")
                         .with(SecurityMockMvcRequestPostProcessors.csrf())
@@ -147,8 +214,7 @@ public class EntityUserControllerTest {
         // Create a DTO with an incorrect current password
         UpdateEntityUserPasswordDTO updateDto = new UpdateEntityUserPasswordDTO("wrongpassword", "newpassword");
         // Mock the service to throw an exception for an invalid current password
-        when(entityUserService.getEntityUserDTOByEmail(EMAIL)).thenReturn(testUser);
-        when(entityUserService.updateEntityUserPassword(eq(testUser.getId()), any(UpdateEntityUserPasswordDTO.class)))
+        when(entityUserService.updateEntityUserPassword(eq(USER_ID), any(UpdateEntityUserPasswordDTO.class)))
                 .thenThrow(new IllegalArgumentException("Current password is incorrect"));
 
         mockMvc.perform(put("/api/user/profile/password")
@@ -157,36 +223,33 @@ public class EntityUserControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(updateDto)))
                 .andExpect(status().isBadRequest()) // Expect HTTP 400 status
-                .andExpect(content().string("Invalid data provided: Current password is incorrect"));
+                .andExpect(jsonPath("$.error").value("Invalid data provided: Current password is incorrect"));
     }
-    // Test to verify that the /api/user/delete endpoint deletes the user
+    // Test to verify that the /api/user/delete endpoint schedules the deletion of the user
     @Test
     @WithMockUser(username = EMAIL)
-    void deleteEntityUserShouldDeleteUser() throws Exception {
-        // Mock the service to return the test user and confirm the deletion
-        when(entityUserService.getEntityUserDTOByEmail(EMAIL)).thenReturn(testUser);
-        when(entityUserService.deleteEntityUser(eq(testUser.getId()))).thenReturn(true);
+    void deleteEntityUserShouldScheduleDeletion() throws Exception {
+        // Mock the service to accept the deletion
+        when(entityUserService.requestEntityUserDeletion(eq(USER_ID))).thenReturn(null);
 
         mockMvc.perform(delete("/api/user/delete")
                         .with(SecurityMockMvcRequestPostProcessors.csrf())
                         .header("Authorization", "Bearer " + token))
-                .andExpect(status().isOk())
-                .andExpect(content().string("User deleted successfully"));
+                .andExpect(status().isAccepted()) // Expect HTTP 202 status
+                .andExpect(content().string("User deletion scheduled"));
     }
     // Test to verify that the /api/user/delete endpoint returns a 404 when the user is not found
     @Test
     @WithMockUser(username = EMAIL)
     void deleteEntityUserUserNotFoundShouldReturnNotFound() throws Exception {
-        // Mock the service to return the test user but fail to delete
-        when(entityUserService.getEntityUserDTOByEmail(EMAIL)).thenReturn(testUser);
-        when(entityUserService.deleteEntityUser(eq(testUser.getId()))).thenReturn(true);
-        when(entityUserService.deleteEntityUser(eq(testUser.getId()))).thenReturn(false);
+        // Mock the service to fail to find the user for the deletion
+        when(entityUserService.requestEntityUserDeletion(eq(USER_ID))).thenThrow(new NotFoundException("User not found"));
 
         mockMvc.perform(delete("/api/user/delete")
                         .with(SecurityMockMvcRequestPostProcessors.csrf())
                         .header("Authorization", "Bearer " + token))
                 .andExpect(status().isNotFound()) // Expect HTTP 404 status
-                .andExpect(content().string("User not found"));
+                .andExpect(jsonPath("$.error").value("User not found"));
     }
 
 }
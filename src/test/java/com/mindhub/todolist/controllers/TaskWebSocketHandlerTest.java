@@ -0,0 +1,165 @@
+package com.mindhub.todolist.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindhub.todolist.config.JwtHandshakeInterceptor;
+import com.mindhub.todolist.dtos.SyncOperationResult;
+import com.mindhub.todolist.dtos.SyncResultStatus;
+import com.mindhub.todolist.dtos.TaskChangeType;
+import com.mindhub.todolist.dtos.TaskEventDTO;
+import com.mindhub.todolist.services.TaskEventBus;
+import com.mindhub.todolist.services.TaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// a small bucket of the users that doesn't refill during the test
+@SpringBootTest(properties = {"todolist.websocket.coalesce-window=100",
+        "todolist.rate-limit.user.capacity=3", "todolist.rate-limit.user.per-minute=1"})
+@ActiveProfiles("test")
+public class TaskWebSocketHandlerTest {
+    @Autowired
+    private TaskWebSocketHandler handler;
+    @Autowired
+    private TaskEventBus taskEventBus;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @MockBean
+    private TaskService taskService;
+
+    private WebSocketSession session;
+    private final LinkedBlockingQueue<String> sent = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(JwtHandshakeInterceptor.USER_ID, 300L);
+        attributes.put(JwtHandshakeInterceptor.USERNAME, "ws@gmail.com");
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("ws-1");
+        when(session.isOpen()).thenReturn(true);
+        when(session.getAttributes()).thenReturn(attributes);
+        doAnswer(invocation -> {
+            sent.add(((WebSocketMessage<?>) invocation.getArgument(0)).getPayload().toString());
+            return null;
+        }).when(session).sendMessage(any());
+    }
+
+    @Test
+    public void testChangesOfTheSameTaskAreCoalesced() throws Exception {
+        int subscribers = taskEventBus.getSubscriberCount();
+        handler.afterConnectionEstablished(session);
+        assertEquals(subscribers + 1, taskEventBus.getSubscriberCount());
+
+        taskEventBus.publish(300L, new TaskEventDTO(TaskChangeType.CREATED, 1L, 1L, null));
+        taskEventBus.publish(300L, new TaskEventDTO(TaskChangeType.UPDATED, 2L, 2L, null));
+        taskEventBus.publish(300L, new TaskEventDTO(TaskChangeType.UPDATED, 1L, 3L, null));
+        taskEventBus.publish(300L, new TaskEventDTO(TaskChangeType.DELETED, 2L, 4L, null));
+
+        String message = sent.poll(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        JsonNode json = objectMapper.readTree(message);
+        assertEquals("EVENTS", json.get("type").asText());
+        JsonNode events = json.get("events");
+        assertEquals(2, events.size());
+        // created and updated inside the window: still created, with the last change
+        assertEquals("CREATED", events.get(0).get("type").asText());
+        assertEquals(3L, events.get(0).get("changeSeq").asLong());
+        assertEquals("DELETED", events.get(1).get("type").asText());
+        // only one message for the burst
+        assertNull(sent.poll(300, TimeUnit.MILLISECONDS));
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        assertEquals(subscribers, taskEventBus.getSubscriberCount());
+    }
+
+    @Test
+    public void testCoalescedEventsAreInTheOrderOfTheirChanges() throws Exception {
+        handler.afterConnectionEstablished(session);
+
+        taskEventBus.publish(300L, new TaskEventDTO(TaskChangeType.UPDATED, 1L, 5L, null));
+        taskEventBus.publish(300L, new TaskEventDTO(TaskChangeType.UPDATED, 2L, 6L, null));
+        taskEventBus.publish(300L, new TaskEventDTO(TaskChangeType.UPDATED, 1L, 7L, null));
+
+        // the last one is the newest: the cursor of the client doesn't go back to 6
+        JsonNode events = objectMapper.readTree(sent.poll(5, TimeUnit.SECONDS)).get("events");
+        assertEquals(2, events.size());
+        assertEquals(2L, events.get(0).get("taskId").asLong());
+        assertEquals(6L, events.get(0).get("changeSeq").asLong());
+        assertEquals(1L, events.get(1).get("taskId").asLong());
+        assertEquals(7L, events.get(1).get("changeSeq").asLong());
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+    }
+
+    @Test
+    public void testOperationsAreAppliedWithTheSync() throws Exception {
+        handler.afterConnectionEstablished(session);
+        when(taskService.syncTasks(eq(300L), anyList())).thenReturn(List.of(
+                new SyncOperationResult(0, "c-1", 7L, SyncResultStatus.APPLIED, 1L, null, null)));
+
+        handler.handleMessage(session, new TextMessage("""
+                {"requestId":"r-1","operations":[{"type":"CREATE","clientId":"c-1","task":{"title":"Task","description":"Desc","status":"PENDING"}}]}
+                """));
+
+        JsonNode json = objectMapper.readTree(sent.poll(5, TimeUnit.SECONDS));
+        assertEquals("RESULTS", json.get("type").asText());
+        assertEquals("r-1", json.get("requestId").asText());
+        assertEquals("APPLIED", json.get("results").get(0).get("status").asText());
+        verify(taskService).syncTasks(eq(300L), anyList());
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+    }
+
+    @Test
+    public void testInvalidMessageReturnsError() throws Exception {
+        handler.afterConnectionEstablished(session);
+
+        handler.handleMessage(session, new TextMessage("not json"));
+
+        JsonNode json = objectMapper.readTree(sent.poll(5, TimeUnit.SECONDS));
+        assertEquals("ERROR", json.get("type").asText());
+        verifyNoInteractions(taskService);
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+    }
+
+    @Test
+    public void testMessagesUseTheRateLimitOfTheUser() throws Exception {
+        session.getAttributes().put(JwtHandshakeInterceptor.USERNAME, "ws-limited@gmail.com");
+        handler.afterConnectionEstablished(session);
+        when(taskService.syncTasks(eq(300L), anyList())).thenReturn(List.of());
+
+        for (int i = 0; i < 4; i++) {
+            handler.handleMessage(session, new TextMessage("{\"requestId\":\"r-" + i + "\",\"operations\":[{\"type\":\"DELETE\",\"taskId\":1}]}"));
+        }
+
+        // the capacity of the bucket: the last one isn't applied
+        for (int i = 0; i < 3; i++) {
+            assertEquals("RESULTS", objectMapper.readTree(sent.poll(5, TimeUnit.SECONDS)).get("type").asText());
+        }
+        JsonNode json = objectMapper.readTree(sent.poll(5, TimeUnit.SECONDS));
+        assertEquals("ERROR", json.get("type").asText());
+        assertTrue(json.get("error").asText().startsWith("Too many requests"));
+        verify(taskService, times(3)).syncTasks(eq(300L), anyList());
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+    }
+}
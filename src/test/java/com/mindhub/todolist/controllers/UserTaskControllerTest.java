@@ -1,18 +1,36 @@
 package com.mindhub.todolist.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.mindhub.todolist.config.JwtUtils;
 import com.mindhub.todolist.controllers.UserTaskController;
 import com.mindhub.todolist.dtos.EntityUserDTO;
+import com.mindhub.todolist.dtos.TaskBatchDTO;
 import com.mindhub.todolist.dtos.TaskDTO;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
+import com.mindhub.todolist.dtos.TaskField;
+import com.mindhub.todolist.dtos.TaskPatch;
 import com.mindhub.todolist.dtos.NewTask;
+import com.mindhub.todolist.dtos.SyncOperation;
+import com.mindhub.todolist.dtos.SyncOperationResult;
+import com.mindhub.todolist.dtos.SyncOperationType;
+import com.mindhub.todolist.dtos.SyncRequest;
+import com.mindhub.todolist.dtos.SyncResultStatus;
+import com.mindhub.todolist.dtos.TaskChangesDTO;
+import com.mindhub.todolist.exceptions.NotFoundException;
 import com.mindhub.todolist.models.EntityUser;
 import com.mindhub.todolist.models.Task;
 import com.mindhub.todolist.models.TaskStatus;
+import com.mindhub.todolist.dtos.TaskChangeType;
+import com.mindhub.todolist.dtos.TaskEventDTO;
+import com.mindhub.todolist.services.TaskCounterService;
+import com.mindhub.todolist.services.TaskEventBus;
 import com.mindhub.todolist.services.TaskService;
 import com.mindhub.todolist.services.EntityUserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -23,18 +41,29 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.hamcrest.Matchers.hasItem;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(UserTaskController.class)
+@WebMvcTest(value = UserTaskController.class, properties = "todolist.response-cache.enabled=false") // the responses are checked, not the cache
 public class UserTaskControllerTest {
 
     @Autowired
@@ -46,6 +75,12 @@ public class UserTaskControllerTest {
     @MockBean
     private EntityUserService entityUserService;
 
+    @MockBean
+    private TaskCounterService taskCounterService;
+
+    @MockBean
+    private TaskEventBus taskEventBus;
+
     @MockBean
     private JwtUtils jwtUtil;
 
@@ -56,6 +91,7 @@ public class UserTaskControllerTest {
     private PasswordEncoder passwordEncoder;
 
     private TaskDTO testTask;
+    private TaskSummaryDTO testSummary;
     private String token;
     private final String EMAIL = "miguel@gmail.com";
 
@@ -78,10 +114,11 @@ public class UserTaskControllerTest {
 
         when(task.getUser()).thenReturn(user);
         testTask = new TaskDTO(task);
+        testSummary = new TaskSummaryDTO(task);
 
         // Mock the authenticated user
-        EntityUserDTO userDTO = new EntityUserDTO(user);
-        when(entityUserService.getEntityUserDTOByEmail(EMAIL)).thenReturn(userDTO);
+        when(entityUserService.getEntityUserIdByEmail(EMAIL)).thenReturn(1L);
+        when(taskCounterService.getVersion(1L)).thenReturn(7L);
 
         token = jwtUtil.generateToken(EMAIL);
     }
@@ -90,7 +127,7 @@ public class UserTaskControllerTest {
     @WithMockUser(username = EMAIL)
     void getOwnTasksShouldReturnTasks() throws Exception {
         // Mock the service to return a list of tasks
-        List<TaskDTO> tasks = Collections.singletonList(testTask);
+        List<TaskSummaryDTO> tasks = Collections.singletonList(testSummary);
         when(taskService.getAllTasksById(eq(1L))).thenReturn(tasks);
 
         // Perform the request and verify the response
@@ -98,12 +135,98 @@ public class UserTaskControllerTest {
                         .with(SecurityMockMvcRequestPostProcessors.csrf())
                         .header("Authorization", "Bearer " + token))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"tasks-1-7\""))
                 .andExpect(jsonPath("$[0].id").value(testTask.getId()))
                 .andExpect(jsonPath("$[0].title").value(testTask.getTitle()))
-                .andExpect(jsonPath("$[0].description").value(testTask.getDescription()))
+                .andExpect(jsonPath("$[0].description").doesNotExist())
                 .andExpect(jsonPath("$[0].status").value(testTask.getStatus().toString()));
     }
 
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getOwnTasksShouldFilterByStatus() throws Exception {
+        when(taskService.getTasksByStatus(1L, TaskStatus.PENDING)).thenReturn(Collections.singletonList(testSummary));
+
+        // the status is part of the ETag: another representation of the list
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks/my-tasks").param("status", "PENDING"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"tasks-1-7-PENDING\""))
+                .andExpect(jsonPath("$[0].id").value(testTask.getId()));
+        verify(taskService, never()).getAllTasksById(anyLong());
+
+        // with fields: 400
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks/my-tasks").param("status", "PENDING").param("fields", "id"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getOwnTasksShouldReturnCborOrSmile() throws Exception {
+        when(taskService.getAllTasksById(eq(1L))).thenReturn(Collections.singletonList(testSummary));
+
+        // the same list in the binary formats, chosen by the Accept header
+        byte[] cbor = mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks/my-tasks")
+                        .accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(header().stringValues("Vary", hasItem("Accept")))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(testSummary.title(), new CBORMapper().readTree(cbor).get(0).get("title").asText());
+
+        byte[] smile = mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks/my-tasks")
+                        .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(testSummary.title(), new SmileMapper().readTree(smile).get(0).get("title").asText());
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getOwnTasksShouldReturnOnlyTheFields() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("title", "Title");
+        row.put("status", TaskStatus.PENDING);
+        Set<TaskField> fields = EnumSet.of(TaskField.ID, TaskField.TITLE, TaskField.STATUS);
+        when(taskService.getTaskFieldsByUserId(1L, fields)).thenReturn(List.of(row));
+
+        // a board: without the descriptions
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks/my-tasks")
+                        .param("fields", "id,title,status")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"tasks-1-7-id.title.status\""))
+                .andExpect(jsonPath("$[0].title").value("Title"))
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+        verify(taskService, never()).getAllTasksById(anyLong());
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getOwnTasksShouldReturnNotModified() throws Exception {
+        // Same version of the user: 304 without loading the tasks
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks/my-tasks")
+                        .header("If-None-Match", "\"tasks-1-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        Mockito.verify(taskService, Mockito.never()).getAllTasksById(any());
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getOwnTasksShouldReturnTasksWhenVersionChanged() throws Exception {
+        when(taskService.getAllTasksById(eq(1L))).thenReturn(Collections.singletonList(testSummary));
+        when(taskCounterService.getVersion(1L)).thenReturn(8L);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks/my-tasks")
+                        .header("If-None-Match", "\"tasks-1-7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"tasks-1-8\""))
+                .andExpect(jsonPath("$[0].id").value(testTask.getId()));
+    }
+
     @Test
     @WithMockUser(username = EMAIL)
     void getOwnTasksShouldReturnNotFound() throws Exception {
@@ -118,6 +241,100 @@ public class UserTaskControllerTest {
                 .andExpect(jsonPath("$.error").value("An unexpected error occurred: Tasks not found"));
     }
 
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getOwnTaskShouldReturnTheDescription() throws Exception {
+        when(taskService.isTaskOwner(1L, EMAIL)).thenReturn(true);
+        when(taskService.getTaskVersion(1L)).thenReturn(4L);
+        when(taskService.getTaskDTOById(1L)).thenReturn(testTask);
+
+        // the detail: the list has only the summary
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks/{id}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"task-1-4\""))
+                .andExpect(jsonPath("$.id").value(testTask.getId()))
+                .andExpect(jsonPath("$.description").value(testTask.getDescription()));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getOwnTaskShouldReturnForbiddenForAnotherUser() throws Exception {
+        when(taskService.isTaskOwner(1L, EMAIL)).thenReturn(false);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks/{id}", 1L))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.error").value("You don't have permission to see this task"));
+        verify(taskService, never()).getTaskDTOById(anyLong());
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getOwnTaskChangesShouldReturnChangesAfterCursor() throws Exception {
+        // Mock the service to return one change and one deletion after the cursor
+        TaskChangesDTO changes = new TaskChangesDTO(12L, false, Collections.singletonList(testTask), List.of(3L));
+        when(taskService.getTaskChanges(1L, 10L)).thenReturn(changes);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks/changes").param("since", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cursor").value(12))
+                .andExpect(jsonPath("$.reset").value(false))
+                .andExpect(jsonPath("$.changed[0].id").value(testTask.getId()))
+                .andExpect(jsonPath("$.deleted[0]").value(3));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void streamOwnTasksShouldPushEventsOfTheUser() throws Exception {
+        TaskEventBus.Subscription subscription = Mockito.mock(TaskEventBus.Subscription.class);
+        ArgumentCaptor<TaskEventBus.Listener> listener = ArgumentCaptor.forClass(TaskEventBus.Listener.class);
+        when(taskEventBus.subscribe(eq(1L), listener.capture())).thenReturn(subscription);
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // The bus delivers an event of the user: it's written in the stream
+        listener.getValue().onEvent(new TaskEventDTO(TaskChangeType.UPDATED, 1L, 9L,
+                new TaskSummaryDTO(1L, "Test Title", TaskStatus.PENDING, 0L, null)));
+        String body = result.getResponse().getContentAsString();
+        assertTrue(body.contains("id:9"));
+        assertTrue(body.contains("event:UPDATED"));
+        assertTrue(body.contains("\"title\":\"Test Title\""));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void syncOwnTasksShouldReturnResultByOperation() throws Exception {
+        SyncRequest syncRequest = new SyncRequest(List.of(
+                new SyncOperation(SyncOperationType.CREATE, "client-1", null, null, new NewTask("Title", "Description", TaskStatus.PENDING)),
+                new SyncOperation(SyncOperationType.UPDATE, null, 1L, 2L, new NewTask("Title", "Description", TaskStatus.COMPLETED))));
+        when(taskService.syncTasks(eq(1L), any())).thenReturn(List.of(
+                new SyncOperationResult(0, "client-1", 5L, SyncResultStatus.APPLIED, 0L, null, null),
+                new SyncOperationResult(1, null, 1L, SyncResultStatus.CONFLICT, 3L, "The task was changed after version 2", testTask)));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/user/tasks/sync")
+                        .with(SecurityMockMvcRequestPostProcessors.csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(syncRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("APPLIED"))
+                .andExpect(jsonPath("$[0].taskId").value(5))
+                .andExpect(jsonPath("$[0].task").doesNotExist())
+                .andExpect(jsonPath("$[1].status").value("CONFLICT"))
+                .andExpect(jsonPath("$[1].task.title").value(testTask.getTitle()));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void syncOwnTasksShouldReturnBadRequestWithoutOperations() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/user/tasks/sync")
+                        .with(SecurityMockMvcRequestPostProcessors.csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.operations").value("Operations are required"));
+    }
+
     @Test
     @WithMockUser(username = EMAIL)
     void createOwnTaskShouldCreateTask() throws Exception {
@@ -154,6 +371,21 @@ public class UserTaskControllerTest {
                 .andExpect(jsonPath("$.status").value("Task status is required and cannot be null"));
     }
 
+    @Test
+    @WithMockUser(username = EMAIL)
+    void createOwnTaskShouldReturnBadRequestForMalformedJson() throws Exception {
+        // Perform the request with a body that isn't JSON and verify the response
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/user")
+                        .with(SecurityMockMvcRequestPostProcessors.csrf())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Title\", \"status\": "))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Malformed request body"));
+
+        verify(taskService, never()).createNewTask(any(), any());
+    }
+
     @Test
     @WithMockUser(username = EMAIL)
     void updateOwnTaskShouldUpdateTask() throws Exception {
@@ -190,7 +422,78 @@ public class UserTaskControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(updatedTask)))
                 .andExpect(status().isForbidden())
-                .andExpect(content().string("You don't have permission to update this task"));
+                .andExpect(jsonPath("$.error").value("You don't have permission to update this task"));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void patchOwnTaskShouldReturnUpdatedTask() throws Exception {
+        Task task = Mockito.spy(new Task("Title", "Description", TaskStatus.COMPLETED));
+        when(task.getId()).thenReturn(1L);
+        TaskDTO patched = new TaskDTO(task);
+        when(taskService.isTaskOwner(1L, EMAIL)).thenReturn(true);
+        when(taskService.patchTask(1L, new TaskPatch(null, null, TaskStatus.COMPLETED))).thenReturn(patched);
+
+        // only the status is sent
+        mockMvc.perform(MockMvcRequestBuilders.patch("/api/user/tasks/1")
+                        .with(SecurityMockMvcRequestPostProcessors.csrf())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"status\":\"COMPLETED\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.title").value("Title"));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void patchOwnTaskShouldReturnBadRequestForBlankTitle() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.patch("/api/user/tasks/1")
+                        .with(SecurityMockMvcRequestPostProcessors.csrf())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"  \"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void patchOwnTaskShouldReturnForbidden() throws Exception {
+        when(taskService.isTaskOwner(1L, EMAIL)).thenReturn(false);
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/api/user/tasks/1")
+                        .with(SecurityMockMvcRequestPostProcessors.csrf())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"status\":\"COMPLETED\"}"))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.error").value("You don't have permission to update this task"));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getOwnTasksByIdsShouldReturnTasksAndMissing() throws Exception {
+        Task task = Mockito.spy(new Task("Title", "Description", TaskStatus.PENDING));
+        when(task.getId()).thenReturn(1L);
+        TaskBatchDTO batch = new TaskBatchDTO(List.of(new TaskDTO(task)), List.of(7L));
+        when(taskService.getTasksByIds(List.of(1L, 7L), 1L)).thenReturn(batch);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks")
+                        .param("ids", "1,7")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks[0].id").value(1))
+                .andExpect(jsonPath("$.missing[0]").value(7));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void getOwnTasksByIdsShouldReturnBadRequestForInvalidId() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/tasks")
+                        .param("ids", "1,a")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid data provided: ids"));
     }
 
     @Test
@@ -219,6 +522,19 @@ public class UserTaskControllerTest {
                         .with(SecurityMockMvcRequestPostProcessors.csrf())
                         .header("Authorization", "Bearer " + token))
                 .andExpect(status().isForbidden())
-                .andExpect(content().string("You don't have permission to delete this task"));
+                .andExpect(jsonPath("$.error").value("You don't have permission to delete this task"));
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void deleteOwnTaskShouldReturnNotFound() throws Exception {
+        // a missing task is 404 (not a conflict)
+        when(taskService.isTaskOwner(99L, EMAIL)).thenThrow(new NotFoundException("Task with ID 99 not found"));
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/user/tasks/99")
+                        .with(SecurityMockMvcRequestPostProcessors.csrf())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Task with ID 99 not found"));
     }
-}
\ No newline at end of file
+}
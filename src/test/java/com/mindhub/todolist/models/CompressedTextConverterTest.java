@@ -0,0 +1,45 @@
+package com.mindhub.todolist.models;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedTextConverterTest {
+    private final CompressedTextConverter converter = new CompressedTextConverter();
+
+    @Test
+    public void testShortTextIsStoredPlain() {
+        byte[] column = converter.convertToDatabaseColumn("Buy milk");
+
+        assertEquals(CompressedTextConverter.PLAIN, column[0]);
+        assertEquals("Buy milk", converter.convertToEntityAttribute(column));
+    }
+
+    @Test
+    public void testLongTextIsCompressed() {
+        String text = "A long pasted description with ñ and emojis 🙂. ".repeat(200);
+
+        byte[] column = converter.convertToDatabaseColumn(text);
+
+        assertEquals(CompressedTextConverter.DEFLATE, column[0]);
+        assertTrue(column.length < text.length() / 10);
+        assertEquals(text, converter.convertToEntityAttribute(column));
+        // the same text gives the same bytes (queries by description)
+        assertArrayEquals(column, converter.convertToDatabaseColumn(text));
+    }
+
+    @Test
+    public void testNullAndEmpty() {
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+        assertEquals("", converter.convertToEntityAttribute(converter.convertToDatabaseColumn("")));
+    }
+
+    @Test
+    public void testCorruptedColumnFails() {
+        byte[] column = converter.convertToDatabaseColumn("x".repeat(5000));
+
+        assertThrows(IllegalStateException.class, () -> converter.convertToEntityAttribute(new byte[]{9, 1, 2}));
+        assertThrows(IllegalStateException.class, () -> converter.convertToEntityAttribute(java.util.Arrays.copyOf(column, 4)));
+    }
+}
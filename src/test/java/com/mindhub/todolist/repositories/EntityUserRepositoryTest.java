@@ -5,6 +5,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
 import java.util.Optional;
 
@@ -18,6 +19,8 @@ public class EntityUserRepositoryTest {
     // Autowired to inject the EntityUserRepository instance for testing
     @Autowired
     private EntityUserRepository userRepository;
+    @Autowired
+    private TestEntityManager entityManager;
     // EntityUser object to be used in tests
     private EntityUser user;
     // This method runs before each test to set up initial data
@@ -180,4 +183,25 @@ public class EntityUserRepositoryTest {
         // Assert that the count is 0
         assertThat(count).isEqualTo(0);
     }
-}
\ No newline at end of file
+    // Test to find only the id of a user by their email (natural id)
+    @Test
+    public void testFindIdByEmail() {
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(userRepository.findIdByEmail("dario@gmail.com")).contains(user.getId());
+        assertThat(userRepository.findIdByEmail("nonexistent@example.com")).isEmpty();
+    }
+    // Test to find a user by the new email after a change (mutable natural id)
+    @Test
+    public void testFindByEmailAfterEmailChange() {
+        entityManager.flush();
+        entityManager.clear();
+        EntityUser found = userRepository.findByEmail("dario@gmail.com").orElseThrow();
+        found.setEmail("new.dario@gmail.com");
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(userRepository.findByEmail("new.dario@gmail.com")).map(EntityUser::getId).contains(user.getId());
+        assertThat(userRepository.findByEmail("dario@gmail.com")).isEmpty();
+        assertThat(userRepository.findIdByEmail("dario@gmail.com")).isEmpty();
+    }
+}
@@ -1,5 +1,10 @@
 package com.mindhub.todolist.repositories;
 
+import com.mindhub.todolist.dtos.EntityUserTaskRow;
+import com.mindhub.todolist.dtos.TaskDTO;
+import com.mindhub.todolist.dtos.TaskField;
+import com.mindhub.todolist.dtos.TaskStatusCount;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
 import com.mindhub.todolist.models.EntityUser;
 import com.mindhub.todolist.models.RoleType;
 import com.mindhub.todolist.models.TaskStatus;
@@ -9,8 +14,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -70,14 +78,6 @@ public class TaskRepositoryTest {
         assertThat(foundTask.getId()).isEqualTo(task.getId());
     }
 
-    @Test
-    public void testFindByDescription() {
-        // Test finding a task by its description
-        Task foundTask = taskRepository.findByDescription("Testing");
-        assertThat(foundTask).isNotNull();
-        assertThat(foundTask.getId()).isEqualTo(task.getId());
-    }
-
     @Test
     public void testFindByUser() {
         // Test finding a task by its associated user
@@ -101,13 +101,6 @@ public class TaskRepositoryTest {
         assertTrue(exists);
     }
 
-    @Test
-    public void testExistsByDescription() {
-        // Test if a task exists by its description
-        boolean exists = taskRepository.existsByDescription("Testing");
-        assertTrue(exists);
-    }
-
     @Test
     public void testExistsByUser() {
         // Test if a task exists for a specific user
@@ -129,13 +122,6 @@ public class TaskRepositoryTest {
         assertThat(count).isEqualTo(1);
     }
 
-    @Test
-    public void testCountByDescription() {
-        // Test counting tasks by description
-        int count = taskRepository.countByDescription("Testing");
-        assertThat(count).isEqualTo(1);
-    }
-
     @Test
     public void testCountByUser() {
         // Test counting tasks by user
@@ -143,6 +129,19 @@ public class TaskRepositoryTest {
         assertThat(count).isEqualTo(1);
     }
 
+    @Test
+    public void testCountByStatusForUser() {
+        // Add a second task with another status
+        Task completedTask = new Task("Sprint 5", "Testing", TaskStatus.COMPLETED);
+        completedTask.setUser(user);
+        taskRepository.save(completedTask);
+        // Test counting the tasks of the user grouped by status
+        List<TaskStatusCount> counts = taskRepository.countByStatusForUser(user.getId());
+        assertThat(counts.size()).isEqualTo(2);
+        assertTrue(counts.contains(new TaskStatusCount(TaskStatus.PENDING, 1)));
+        assertTrue(counts.contains(new TaskStatusCount(TaskStatus.COMPLETED, 1)));
+    }
+
     @Test
     public void testFindByIdNotFound() {
         // Test finding a non-existent task by ID
@@ -188,6 +187,68 @@ public class TaskRepositoryTest {
         assertThat(updatedTask.getTitle()).isEqualTo("Updated Sprint 4");
     }
 
+    @Test
+    public void testFindFields() {
+        // only the selected columns, by user
+        List<Map<String, Object>> rows = taskRepository.findFields(EnumSet.of(TaskField.ID, TaskField.STATUS), user.getId(), null);
+        assertEquals(1, rows.size());
+        assertEquals(List.of("id", "status"), List.copyOf(rows.get(0).keySet()));
+        assertEquals(task.getId(), rows.get(0).get("id"));
+        assertEquals(TaskStatus.PENDING, rows.get(0).get("status"));
+
+        // by id
+        assertEquals("Sprint 4", taskRepository.findFields(EnumSet.of(TaskField.TITLE), null, task.getId()).get(0).get("title"));
+        assertTrue(taskRepository.findFields(EnumSet.of(TaskField.TITLE), null, -1L).isEmpty());
+    }
+
+    @Test
+    public void testFindSummariesAndDTOs() {
+        // the lists: without the description
+        List<TaskSummaryDTO> summaries = taskRepository.findSummariesByUserId(user.getId());
+        assertEquals(1, summaries.size());
+        assertEquals("Sprint 4", summaries.get(0).title());
+        assertEquals(TaskStatus.PENDING, summaries.get(0).status());
+
+        // the multi-get: with the description, in the same query
+        List<TaskDTO> tasks = taskRepository.findDTOsByIdInAndUserId(List.of(task.getId()), user.getId());
+        assertEquals(1, tasks.size());
+        assertEquals("Testing", tasks.get(0).getDescription());
+        assertTrue(taskRepository.findDTOsByIdInAndUserId(List.of(task.getId()), user.getId() + 1).isEmpty());
+    }
+
+    @Test
+    public void testStreams() {
+        // the cursors of the admin lists (@DataJpaTest: inside a transaction)
+        try (Stream<TaskSummaryDTO> tasks = taskRepository.streamAllSummaries()) {
+            assertEquals(List.of("Sprint 4"), tasks.map(TaskSummaryDTO::title).toList());
+        }
+        EntityUser other = new EntityUser("Other7", "12345678", "other@gmail.com");
+        userRepository.save(other);
+        try (Stream<EntityUserTaskRow> rows = userRepository.streamAllWithTasks()) {
+            List<EntityUserTaskRow> list = rows.toList();
+            assertEquals(2, list.size());
+            assertEquals("Sprint 4", list.get(0).task().title());
+            // a user without tasks: one row without task
+            assertEquals("other@gmail.com", list.get(1).email());
+            assertNull(list.get(1).task());
+        }
+        try (Stream<EntityUserTaskRow> rows = userRepository.streamAll()) {
+            assertEquals(2, rows.count());
+        }
+    }
+
+    @Test
+    public void testLongDescriptionRoundTrip() {
+        // compressed in the column, the same text when it's read
+        String description = "Pasted log line: request finished in 12 ms\n".repeat(500);
+        Task longTask = new Task("Logs", description, TaskStatus.PENDING);
+        longTask.setUser(user);
+        taskRepository.saveAndFlush(longTask);
+
+        List<TaskDTO> tasks = taskRepository.findDTOsByIdInAndUserId(List.of(longTask.getId()), user.getId());
+        assertEquals(description, tasks.get(0).getDescription());
+    }
+
     @Test
     public void testDeleteTask() {
         taskRepository.deleteById(task.getId());
@@ -0,0 +1,68 @@
+package com.mindhub.todolist.services;
+
+import com.mindhub.todolist.dtos.CacheRegionStatsDTO;
+import com.mindhub.todolist.models.EntityUser;
+import com.mindhub.todolist.repositories.EntityUserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Without @Transactional: every repository call is its own transaction, the cache is filled after the commits
+@SpringBootTest
+@ActiveProfiles("test")
+public class CacheStatsServiceTest {
+    private static final String EMAIL = "cache-stats@gmail.com";
+
+    @Autowired
+    private CacheStatsService cacheStatsService;
+    @Autowired
+    private EntityUserRepository entityUserRepository;
+
+    private EntityUser testUser;
+
+    @BeforeEach
+    public void setUp() {
+        testUser = entityUserRepository.save(new EntityUser("CacheStats7", "12345678", EMAIL));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        entityUserRepository.deleteById(testUser.getId());
+    }
+
+    @Test
+    public void testRepeatedLookupsAreHits() {
+        long userHits = getRegion("users").hits();
+        long emailHits = getRegion("user-emails").hits();
+
+        // the first ones can load from the DB, the next ones are served by the cache
+        for (int i = 0; i < 3; i++) {
+            assertTrue(entityUserRepository.findById(testUser.getId()).isPresent());
+            assertEquals(testUser.getId(), entityUserRepository.findIdByEmail(EMAIL).orElseThrow());
+            assertEquals(testUser.getId(), entityUserRepository.findByEmail(EMAIL).orElseThrow().getId());
+        }
+
+        assertTrue(getRegion("users").hits() >= userHits + 2);
+        assertTrue(getRegion("user-emails").hits() >= emailHits + 2);
+    }
+
+    @Test
+    public void testAllRegionsAreReported() {
+        List<String> regions = cacheStatsService.getSecondLevelCacheStats().stream().map(CacheRegionStatsDTO::region).toList();
+        assertEquals(List.of("tasks", "user-emails", "user-tasks", "users"), regions);
+    }
+
+    private CacheRegionStatsDTO getRegion(String region) {
+        return cacheStatsService.getSecondLevelCacheStats().stream()
+                .filter(stats -> stats.region().equals(region))
+                .findFirst()
+                .orElseThrow();
+    }
+}
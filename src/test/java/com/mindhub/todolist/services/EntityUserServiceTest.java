@@ -1,9 +1,19 @@
 package com.mindhub.todolist.services;
 
+import com.mindhub.todolist.dtos.DeletionJobDTO;
+import com.mindhub.todolist.dtos.EntityUserDTO;
+import com.mindhub.todolist.dtos.EntityUserSummaryDTO;
+import com.mindhub.todolist.dtos.EntityUserTaskRow;
 import com.mindhub.todolist.dtos.NewEntityUser;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
 import com.mindhub.todolist.dtos.UpdateEntityUserUsernameEmailDTO;
+import com.mindhub.todolist.dtos.UserField;
+import com.mindhub.todolist.exceptions.ConflictException;
+import com.mindhub.todolist.exceptions.NotFoundException;
+import com.mindhub.todolist.models.DeletionStatus;
 import com.mindhub.todolist.models.EntityUser;
 import com.mindhub.todolist.models.RoleType;
+import com.mindhub.todolist.models.TaskStatus;
 import com.mindhub.todolist.repositories.EntityUserRepository;
 
 import jakarta.validation.*;
@@ -17,8 +27,13 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -85,7 +100,7 @@ public class EntityUserServiceTest {
         when(entityUserRepository.findById(1L)).thenReturn(Optional.empty());
 
         // Verify that the service throws an exception when the user is not found
-        assertThrows(RuntimeException.class, () -> entityUserService.getEntityUserById(1L));
+        assertThrows(NotFoundException.class, () -> entityUserService.getEntityUserById(1L));
 
         // Verify that the repository method was called
         verify(entityUserRepository, times(1)).findById(1L);
@@ -111,7 +126,7 @@ public class EntityUserServiceTest {
         when(entityUserRepository.findByEmail("nonexistent@gmail.com")).thenReturn(Optional.empty());
 
         // Verify that the service throws an exception when the user is not found
-        assertThrows(RuntimeException.class, () -> entityUserService.getEntityUserByEmail("nonexistent@gmail.com"));
+        assertThrows(NotFoundException.class, () -> entityUserService.getEntityUserByEmail("nonexistent@gmail.com"));
 
         // Verify that the repository method was called
         verify(entityUserRepository, times(1)).findByEmail("nonexistent@gmail.com");
@@ -179,7 +194,7 @@ public class EntityUserServiceTest {
 
         // Verify that the service throws an exception when the email is already in use
         NewEntityUser newUser = new NewEntityUser("User", "password", "existing@gmail.com");
-        assertThrows(IllegalArgumentException.class, () -> entityUserService.validateEntityUser(newUser));
+        assertThrows(ConflictException.class, () -> entityUserService.validateEntityUser(newUser));
 
         // Verify that the repository method was called
         verify(entityUserRepository, times(1)).existsByEmail("existing@gmail.com");
@@ -192,7 +207,7 @@ public class EntityUserServiceTest {
 
         // Verify that the service throws an exception when the username is already in use
         NewEntityUser newUser = new NewEntityUser("ExistingUser", "password", "user@gmail.com");
-        assertThrows(IllegalArgumentException.class, () -> entityUserService.validateEntityUser(newUser));
+        assertThrows(ConflictException.class, () -> entityUserService.validateEntityUser(newUser));
 
         // Verify that the repository method was called
         verify(entityUserRepository, times(1)).existsByUsername("ExistingUser");
@@ -222,32 +237,43 @@ public class EntityUserServiceTest {
     }
 
     @Test
-    public void testDeleteEntityUser() {
-        // Mock the repository to return true when checking for existing user
-        when(entityUserRepository.existsById(1l)).thenReturn(true);
+    public void testGetEntityUserSummaryByEmail() {
+        // Call the service method (the test user doesn't have tasks)
+        EntityUserSummaryDTO result = entityUserService.getEntityUserSummaryByEmail("miguel@gmail.com");
 
-        assertTrue(entityUserRepository.existsById(1L));
+        // Verify the result: every status is present
+        assertNotNull(result);
+        assertEquals("Miguel7", result.getUsername());
+        assertEquals(0, result.getTotalTasks());
+        assertEquals(TaskStatus.values().length, result.getTasksByStatus().size());
+        assertEquals(0L, result.getTasksByStatus().get(TaskStatus.PENDING));
+    }
+
+    @Test
+    public void testRequestEntityUserDeletion() {
         // Call the service method
-        boolean result = entityUserService.deleteEntityUser(1L);
+        DeletionJobDTO result = entityUserService.requestEntityUserDeletion(1L);
 
-        // Verify the result
-        assertTrue(result);
+        // Verify the result: the user is disabled and the job is waiting for the runner
+        assertNotNull(result);
+        assertEquals(1L, result.getUserId());
+        assertEquals(DeletionStatus.PENDING, result.getStatus());
+        assertFalse(testUser.isEnabled());
+        verify(entityUserRepository, times(1)).save(testUser);
+        verify(entityUserRepository, never()).deleteById(1L);
 
-        // Verify that the repository methods were called
-        verify(entityUserRepository, times(1)).existsById(1L);
-        verify(entityUserRepository, times(1)).deleteById(1L);
+        // A second request returns the same job
+        DeletionJobDTO again = entityUserService.requestEntityUserDeletion(1L);
+        assertEquals(result.getId(), again.getId());
     }
 
     @Test
-    public void testDeleteEntityUserNotFound() {
-        // Mock the repository to return false when checking for existing user
-        when(entityUserRepository.existsById(eq(2L))).thenReturn(false);
-
-        // Call the service method
-        boolean result = entityUserService.deleteEntityUser(eq(2L));
+    public void testRequestEntityUserDeletionNotFound() {
+        // Mock the repository to return an empty optional when findById is called
+        when(entityUserRepository.findById(2L)).thenReturn(Optional.empty());
 
-        // Verify the result
-        assertFalse(result);
+        // Verify that the service throws an exception when the user is not found
+        assertThrows(NotFoundException.class, () -> entityUserService.requestEntityUserDeletion(2L));
     }
 
     @Test
@@ -298,6 +324,38 @@ public class EntityUserServiceTest {
                 .anyMatch(v -> v.getMessage().equals("Username must be between 4 and 10 characters")));
     }
 
+    @Test
+    public void testStreamAllEntityUsersGroupsTheTasksByUser() {
+        // a row by task, the users ordered: 1 with two tasks, 2 without tasks
+        TaskSummaryDTO first = new TaskSummaryDTO(10L, "First", TaskStatus.PENDING, 0L, null);
+        TaskSummaryDTO second = new TaskSummaryDTO(11L, "Second", TaskStatus.COMPLETED, 0L, null);
+        when(entityUserRepository.streamAllWithTasks()).thenReturn(Stream.of(
+                new EntityUserTaskRow(1L, "Miguel7", "miguel@gmail.com", RoleType.USER, first),
+                new EntityUserTaskRow(1L, "Miguel7", "miguel@gmail.com", RoleType.USER, second),
+                new EntityUserTaskRow(2L, "Dario7", "dario@gmail.com", RoleType.ADMIN, null)));
+
+        List<EntityUserDTO> users = new ArrayList<>();
+        entityUserService.streamAllEntityUsers(users::add);
+
+        assertEquals(2, users.size());
+        assertEquals(List.of(first, second), users.get(0).getTasks());
+        assertEquals("dario@gmail.com", users.get(1).getEmail());
+        assertTrue(users.get(1).getTasks().isEmpty());
+    }
+
+    @Test
+    public void testStreamAllEntityUserFieldsWithoutTasks() {
+        when(entityUserRepository.streamAll()).thenReturn(Stream.of(
+                new EntityUserTaskRow(1L, "Miguel7", "miguel@gmail.com", RoleType.USER)));
+
+        List<Map<String, Object>> users = new ArrayList<>();
+        entityUserService.streamAllEntityUserFields(EnumSet.of(UserField.ID, UserField.EMAIL), users::add);
+
+        // the tasks aren't queried
+        assertEquals(List.of(Map.of("id", 1L, "email", "miguel@gmail.com")), users);
+        verify(entityUserRepository, never()).streamAllWithTasks();
+    }
+
     @Test
     public void testInvalidEmailCreateUser() {
         // Create a new user with an invalid email
@@ -0,0 +1,181 @@
+package com.mindhub.todolist.services;
+
+import com.mindhub.todolist.dtos.NewTask;
+import com.mindhub.todolist.dtos.TaskChangesDTO;
+import com.mindhub.todolist.dtos.TaskDTO;
+import com.mindhub.todolist.models.EntityUser;
+import com.mindhub.todolist.models.Task;
+import com.mindhub.todolist.models.TaskStatus;
+import com.mindhub.todolist.repositories.EntityUserRepository;
+import com.mindhub.todolist.repositories.TaskCounterRepository;
+import com.mindhub.todolist.repositories.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// With the real repositories: the counters are updated by the TaskService
+// @Transactional: every test is rolled back at the end
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class TaskCounterServiceTest {
+    @Autowired
+    private TaskCounterService taskCounterService;
+    @Autowired
+    private TaskService taskService;
+    @Autowired
+    private EntityUserRepository entityUserRepository;
+    @Autowired
+    private TaskRepository taskRepository;
+    @Autowired
+    private TaskCounterRepository taskCounterRepository;
+
+    private EntityUser testUser;
+
+    @BeforeEach
+    public void setUp() {
+        testUser = entityUserRepository.save(new EntityUser("Counter7", "12345678", "counter@gmail.com"));
+    }
+
+    @Test
+    public void testCountersFollowTheTasks() {
+        // Create two tasks
+        taskService.createNewTask(testUser.getId(), new NewTask("Title 1", "Description 1", TaskStatus.PENDING));
+        taskService.createNewTask(testUser.getId(), new NewTask("Title 2", "Description 2", TaskStatus.PENDING));
+        Map<TaskStatus, Long> counts = taskCounterService.getCounts(testUser.getId());
+        assertEquals(2L, counts.get(TaskStatus.PENDING));
+
+        // Change the status of one of them
+        Task task = taskRepository.findByUserId(testUser.getId()).get(0);
+        taskService.updateTask(task.getId(), new TaskDTO(new Task("Title 1", "Description 1", TaskStatus.COMPLETED)));
+        counts = taskCounterService.getCounts(testUser.getId());
+        assertEquals(1L, counts.get(TaskStatus.PENDING));
+        assertEquals(1L, counts.get(TaskStatus.COMPLETED));
+
+        // Delete it
+        taskService.deleteTask(task.getId());
+        counts = taskCounterService.getCounts(testUser.getId());
+        assertEquals(1L, counts.get(TaskStatus.PENDING));
+        assertEquals(0L, counts.get(TaskStatus.COMPLETED));
+        assertEquals(1L, taskCounterRepository.findSnapshotById(testUser.getId()).orElseThrow().getTotal());
+    }
+
+    @Test
+    public void testRecountRepairsDrift() {
+        taskService.createNewTask(testUser.getId(), new NewTask("Title 1", "Description 1", TaskStatus.IN_PROGRESS));
+        // Simulate a drift in the counters
+        taskCounterRepository.adjust(testUser.getId(), 5, 0, 5, 0);
+
+        // The recount detects it and repairs the counters
+        assertTrue(taskCounterService.recount(testUser.getId()));
+        assertFalse(taskCounterService.recount(testUser.getId()));
+        assertEquals(1L, taskCounterService.getCounts(testUser.getId()).get(TaskStatus.IN_PROGRESS));
+    }
+
+    @Test
+    public void testVersionChangesWithEveryChange() {
+        long version = taskCounterService.getVersion(testUser.getId());
+        taskService.createNewTask(testUser.getId(), new NewTask("Title 1", "Description 1", TaskStatus.PENDING));
+        long afterCreate = taskCounterService.getVersion(testUser.getId());
+        assertTrue(afterCreate > version);
+
+        // Update without changing the status: the counts are the same but the version changes (ETag)
+        Task task = taskRepository.findByUserId(testUser.getId()).get(0);
+        taskService.updateTask(task.getId(), new TaskDTO(new Task("Other title", "Description 1", TaskStatus.PENDING)));
+        long afterUpdate = taskCounterService.getVersion(testUser.getId());
+        assertTrue(afterUpdate > afterCreate);
+
+        // Changes of the profile
+        taskCounterService.touch(testUser.getId());
+        assertTrue(taskCounterService.getVersion(testUser.getId()) > afterUpdate);
+    }
+
+    @Test
+    public void testChangesAfterTheCursor() {
+        taskService.createNewTask(testUser.getId(), new NewTask("Title 1", "Description 1", TaskStatus.PENDING));
+        taskService.createNewTask(testUser.getId(), new NewTask("Title 2", "Description 2", TaskStatus.PENDING));
+
+        // First sync: all the tasks
+        TaskChangesDTO changes = taskService.getTaskChanges(testUser.getId(), 0);
+        assertTrue(changes.reset());
+        assertEquals(2, changes.changed().size());
+        long cursor = changes.cursor();
+
+        // Nothing changed
+        changes = taskService.getTaskChanges(testUser.getId(), cursor);
+        assertFalse(changes.reset());
+        assertTrue(changes.changed().isEmpty());
+        assertTrue(changes.deleted().isEmpty());
+        assertEquals(cursor, changes.cursor());
+
+        // Update one task and delete the other: only those changes
+        List<Task> tasks = taskRepository.findByUserId(testUser.getId());
+        taskService.updateTask(tasks.get(0).getId(), new TaskDTO(new Task("Other title", "Description 1", TaskStatus.COMPLETED)));
+        taskService.deleteTask(tasks.get(1).getId());
+        changes = taskService.getTaskChanges(testUser.getId(), cursor);
+        assertFalse(changes.reset());
+        assertEquals(1, changes.changed().size());
+        assertEquals("Other title", changes.changed().get(0).getTitle());
+        assertEquals(List.of(tasks.get(1).getId()), changes.deleted());
+        assertTrue(changes.cursor() > cursor);
+    }
+
+    @Test
+    public void testOldCursorAfterPurgeGetsFullSync() {
+        taskService.createNewTask(testUser.getId(), new NewTask("Title 1", "Description 1", TaskStatus.PENDING));
+        long cursor = taskService.getTaskChanges(testUser.getId(), 0).cursor();
+        taskService.createNewTask(testUser.getId(), new NewTask("Title 2", "Description 2", TaskStatus.PENDING));
+        taskService.deleteTask(taskRepository.findByUserId(testUser.getId()).get(0).getId());
+
+        // The tombstone is purged: the client with the old cursor can't know about the deletion
+        assertEquals(1, taskService.purgeTombstones(LocalDateTime.now().plusMinutes(1)));
+        TaskChangesDTO changes = taskService.getTaskChanges(testUser.getId(), cursor);
+        assertTrue(changes.reset());
+        assertEquals(1, changes.changed().size());
+        assertTrue(changes.deleted().isEmpty());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // the first reads commit their own transactions
+    public void testConcurrentFirstReadsCreateTheCountersOnce() throws Exception {
+        Long userId = testUser.getId();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            // all at the same time: none of them finds the row of the user
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> versions = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                versions.add(executor.submit(() -> {
+                    start.await();
+                    return taskCounterService.getVersion(userId);
+                }));
+            }
+            start.countDown();
+            for (Future<Long> version : versions) {
+                assertEquals(0L, version.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(0L, taskCounterService.getCounts(userId).get(TaskStatus.PENDING));
+        } finally {
+            executor.shutdownNow();
+            // committed data: the other tests of the context share the DB
+            taskCounterService.deleteCounters(userId);
+            entityUserRepository.deleteById(userId);
+        }
+    }
+}
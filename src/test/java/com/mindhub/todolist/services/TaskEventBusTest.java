@@ -0,0 +1,120 @@
+package com.mindhub.todolist.services;
+
+import com.mindhub.todolist.dtos.TaskChangeType;
+import com.mindhub.todolist.dtos.TaskEventDTO;
+import com.mindhub.todolist.events.TaskChangedEvent;
+import com.mindhub.todolist.models.Task;
+import com.mindhub.todolist.models.TaskStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// small buffer to test the overflow
+@SpringBootTest(properties = "todolist.events.buffer-size=4")
+@ActiveProfiles("test")
+public class TaskEventBusTest {
+    @Autowired
+    private TaskEventBus taskEventBus;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    public void testEventsOfTheUserInOrder() throws Exception {
+        List<TaskEventDTO> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        TaskEventBus.Subscription subscription = taskEventBus.subscribe(100L, event -> {
+            received.add(event);
+            latch.countDown();
+        });
+        List<TaskEventDTO> otherUser = new CopyOnWriteArrayList<>();
+        TaskEventBus.Subscription otherSubscription = taskEventBus.subscribe(200L, otherUser::add);
+
+        for (long seq = 1; seq <= 3; seq++) {
+            taskEventBus.publish(100L, new TaskEventDTO(TaskChangeType.UPDATED, 1L, seq, null));
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1L, 2L, 3L), received.stream().map(TaskEventDTO::changeSeq).toList());
+        assertTrue(otherUser.isEmpty());
+        subscription.cancel();
+        otherSubscription.cancel();
+    }
+
+    @Test
+    public void testSlowSubscriberReceivesResync() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<TaskEventDTO> received = new CopyOnWriteArrayList<>();
+        CountDownLatch resync = new CountDownLatch(1);
+        TaskEventBus.Subscription subscription = taskEventBus.subscribe(101L, event -> {
+            if (received.isEmpty()) {
+                blocked.countDown();
+                release.await(5, TimeUnit.SECONDS); // slow client
+            }
+            received.add(event);
+            if (event.type() == TaskChangeType.RESYNC) {
+                resync.countDown();
+            }
+        });
+
+        taskEventBus.publish(101L, new TaskEventDTO(TaskChangeType.CREATED, 1L, 1L, null));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        // more events than the buffer while the client is blocked
+        for (long seq = 2; seq <= 10; seq++) {
+            taskEventBus.publish(101L, new TaskEventDTO(TaskChangeType.UPDATED, 1L, seq, null));
+        }
+        release.countDown();
+
+        assertTrue(resync.await(5, TimeUnit.SECONDS));
+        assertTrue(received.size() < 10); // events were dropped
+        subscription.cancel();
+    }
+
+    @Test
+    public void testSubscriberRemovedWhenTheConnectionFails() throws Exception {
+        int before = taskEventBus.getSubscriberCount();
+        CountDownLatch called = new CountDownLatch(1);
+        taskEventBus.subscribe(102L, event -> {
+            called.countDown();
+            throw new IllegalStateException("Connection closed");
+        });
+        assertEquals(before + 1, taskEventBus.getSubscriberCount());
+
+        taskEventBus.publish(102L, new TaskEventDTO(TaskChangeType.CREATED, 1L, 1L, null));
+        assertTrue(called.await(5, TimeUnit.SECONDS));
+        // removed by the thread of the bus after the exception
+        for (int i = 0; i < 50 && taskEventBus.getSubscriberCount() > before; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(before, taskEventBus.getSubscriberCount());
+    }
+
+    @Test
+    public void testTaskChangedEventIsPushed() throws Exception {
+        List<TaskEventDTO> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        TaskEventBus.Subscription subscription = taskEventBus.subscribe(103L, event -> {
+            received.add(event);
+            latch.countDown();
+        });
+
+        // Without a transaction the event is delivered immediately (fallbackExecution)
+        Task task = new Task("Title", "Description", TaskStatus.PENDING);
+        eventPublisher.publishEvent(new TaskChangedEvent(103L, TaskChangeType.CREATED, 7L, 4L, task));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(TaskChangeType.CREATED, received.get(0).type());
+        assertEquals(7L, received.get(0).taskId());
+        assertEquals("Title", received.get(0).task().title());
+        subscription.cancel();
+    }
+}
@@ -0,0 +1,119 @@
+package com.mindhub.todolist.services;
+
+import com.mindhub.todolist.dtos.NewTask;
+import com.mindhub.todolist.dtos.TaskPatch;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
+import com.mindhub.todolist.models.DeletionJob;
+import com.mindhub.todolist.models.DeletionStatus;
+import com.mindhub.todolist.models.EntityUser;
+import com.mindhub.todolist.models.TaskStatus;
+import com.mindhub.todolist.repositories.DeletionJobRepository;
+import com.mindhub.todolist.repositories.EntityUserRepository;
+import com.mindhub.todolist.repositories.TaskTombstoneRepository;
+import com.mindhub.todolist.services.impl.DeletionJobRunner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Without @Transactional: the changes are applied to the model after their commits
+@SpringBootTest
+@ActiveProfiles("test")
+public class TaskReadModelTest {
+    @Autowired
+    private TaskReadModel taskReadModel;
+    @Autowired
+    private TaskService taskService;
+    @Autowired
+    private TaskCounterService taskCounterService;
+    @Autowired
+    private EntityUserRepository entityUserRepository;
+    @Autowired
+    private TaskTombstoneRepository taskTombstoneRepository;
+    @Autowired
+    private DeletionJobRunner deletionJobRunner;
+    @Autowired
+    private DeletionJobRepository deletionJobRepository;
+
+    private EntityUser testUser;
+
+    @BeforeEach
+    public void setUp() {
+        testUser = entityUserRepository.save(new EntityUser("ReadModel7", "12345678", "read-model@gmail.com"));
+        taskService.createNewTask(testUser.getId(), new NewTask("Title 1", "Description 1", TaskStatus.PENDING));
+        taskService.createNewTask(testUser.getId(), new NewTask("Title 2", "Description 2", TaskStatus.COMPLETED));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        // committed data: the other tests of the context don't see the deletions of this user
+        taskTombstoneRepository.deleteAll(taskTombstoneRepository.findAll().stream()
+                .filter(tombstone -> testUser.getId().equals(tombstone.getUserId())).toList());
+        entityUserRepository.deleteById(testUser.getId()); // nothing if the test deleted it
+    }
+
+    @Test
+    public void testChangesAreAppliedAfterTheCommit() {
+        Long userId = testUser.getId();
+        // the first read loads the user from the DB
+        assertEquals(2, taskService.getAllTasksById(userId).size());
+        assertNotNull(taskReadModel.getTasks(userId, taskCounterService.getVersion(userId)));
+
+        // the new version is in memory without another load
+        taskService.createNewTask(userId, new NewTask("Title 3", "Description 3", TaskStatus.PENDING));
+        List<TaskSummaryDTO> tasks = taskReadModel.getTasks(userId, taskCounterService.getVersion(userId));
+        assertNotNull(tasks);
+        assertEquals(List.of("Title 1", "Title 2", "Title 3"), tasks.stream().map(TaskSummaryDTO::title).toList());
+
+        Long taskId = tasks.get(0).id();
+        taskService.patchTask(taskId, new TaskPatch(null, null, TaskStatus.COMPLETED));
+        long version = taskCounterService.getVersion(userId);
+        assertEquals(List.of("Title 1", "Title 2"),
+                taskReadModel.getTasks(userId, version, TaskStatus.COMPLETED).stream().map(TaskSummaryDTO::title).toList());
+        assertEquals(Map.of(TaskStatus.PENDING, 1L, TaskStatus.IN_PROGRESS, 0L, TaskStatus.COMPLETED, 2L),
+                taskReadModel.getCounts(userId, version));
+
+        taskService.deleteTask(taskId);
+        assertEquals(List.of("Title 2", "Title 3"), taskService.getAllTasksById(userId).stream().map(TaskSummaryDTO::title).toList());
+        assertEquals(2, taskReadModel.getTasks(userId, taskCounterService.getVersion(userId)).size());
+    }
+
+    @Test
+    public void testChangeWithoutEventRemovesTheUser() {
+        Long userId = testUser.getId();
+        taskService.getAllTasksById(userId);
+        // e.g. a change of the profile: a version without a task event
+        taskCounterService.touch(userId);
+        taskService.createNewTask(userId, new NewTask("Title 3", "Description 3", TaskStatus.PENDING));
+        assertNull(taskReadModel.getTasks(userId, taskCounterService.getVersion(userId)));
+
+        // the next read loads it again, from the DB
+        assertEquals(3, taskService.getAllTasksById(userId).size());
+        assertEquals(List.of("Title 1", "Title 3"), taskService.getTasksByStatus(userId, TaskStatus.PENDING).stream()
+                .map(TaskSummaryDTO::title).toList());
+    }
+
+    @Test
+    public void testDeletedUserIsEvicted() {
+        Long userId = testUser.getId();
+        taskService.getAllTasksById(userId);
+        long version = taskCounterService.getVersion(userId);
+        assertNotNull(taskReadModel.getTasks(userId, version));
+
+        // the deletion job deletes the tasks in bulk, without their events
+        deletionJobRunner.process(new DeletionJob(userId, testUser.getEmail(), 2));
+        DeletionJob job = deletionJobRepository.findAll().stream()
+                .filter(deletionJob -> userId.equals(deletionJob.getUserId())).findFirst().orElseThrow();
+        deletionJobRepository.delete(job);
+        assertEquals(DeletionStatus.COMPLETED, job.getStatus());
+
+        assertNull(taskReadModel.getTasks(userId, version));
+    }
+}
@@ -2,7 +2,15 @@ package com.mindhub.todolist.services;
 
 
 import com.mindhub.todolist.dtos.NewTask;
+import com.mindhub.todolist.dtos.SyncOperation;
+import com.mindhub.todolist.dtos.SyncOperationResult;
+import com.mindhub.todolist.dtos.SyncOperationType;
+import com.mindhub.todolist.dtos.SyncResultStatus;
+import com.mindhub.todolist.dtos.TaskBatchDTO;
 import com.mindhub.todolist.dtos.TaskDTO;
+import com.mindhub.todolist.dtos.TaskPatch;
+import com.mindhub.todolist.dtos.TaskSummaryDTO;
+import com.mindhub.todolist.exceptions.NotFoundException;
 import com.mindhub.todolist.models.EntityUser;
 import com.mindhub.todolist.models.Task;
 import com.mindhub.todolist.models.TaskStatus;
@@ -19,9 +27,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -116,7 +128,7 @@ public class TaskServiceTest {
         when(taskRepository.findById(999L)).thenReturn(Optional.empty());
 
         // Verify that the service throws an exception
-        assertThrows(RuntimeException.class, () -> taskService.getTaskById(999L));
+        assertThrows(NotFoundException.class, () -> taskService.getTaskById(999L));
 
         // Verify that the repository method was called
         verify(taskRepository, times(1)).findById(999L);
@@ -162,7 +174,7 @@ public class TaskServiceTest {
         when(entityUserRepository.findById(999L)).thenReturn(Optional.empty());
 
         // Verify that the service throws an exception
-        assertThrows(RuntimeException.class, () -> taskService.createNewTask(999L, new NewTask("Test Title", "Test Description", TaskStatus.PENDING)));
+        assertThrows(NotFoundException.class, () -> taskService.createNewTask(999L, new NewTask("Test Title", "Test Description", TaskStatus.PENDING)));
 
         // Verify that the repository method was called
         verify(entityUserRepository, times(1)).findById(999L);
@@ -171,39 +183,41 @@ public class TaskServiceTest {
     @Test
     public void testGetAllTasksById() {
         // Mock the repository to return a list containing the test task
-        when(taskRepository.findByUserId(testUser.getId())).thenReturn(Collections.singletonList(testTask));
+        TaskSummaryDTO summary = new TaskSummaryDTO(testTask);
+        when(taskRepository.findSummariesByUserId(testUser.getId())).thenReturn(Collections.singletonList(summary));
 
         // Call the service method
-        List<TaskDTO> result = taskService.getAllTasksById(testUser.getId());
+        List<TaskSummaryDTO> result = taskService.getAllTasksById(testUser.getId());
 
-        // Verify the result
+        // Verify the result (a summary, without the description)
         assertNotNull(result);
         assertEquals(1, result.size());
-        assertEquals(testTask.getTitle(), result.get(0).getTitle());
-        assertEquals(testTask.getDescription(), result.get(0).getDescription());
-        assertEquals(testTask.getStatus(), result.get(0).getStatus());
+        assertEquals(testTask.getTitle(), result.get(0).title());
+        assertEquals(testTask.getStatus(), result.get(0).status());
 
         // Verify that the repository method was called
-        verify(taskRepository, times(1)).findByUserId(testUser.getId());
+        verify(taskRepository, times(1)).findSummariesByUserId(testUser.getId());
+        verify(taskRepository, never()).findByUserId(anyLong());
     }
 
     @Test
     public void testGetAllTasks() {
-        // Mock the repository to return a list containing the test task
-        when(taskRepository.findAll()).thenReturn(Collections.singletonList(testTask));
+        // Mock the repository to return a cursor with the test task
+        TaskSummaryDTO summary = new TaskSummaryDTO(testTask);
+        AtomicBoolean closed = new AtomicBoolean();
+        when(taskRepository.streamAllSummaries()).thenReturn(Stream.of(summary).onClose(() -> closed.set(true)));
 
         // Call the service method
-        List<TaskDTO> result = taskService.getAllTasks();
+        List<TaskSummaryDTO> result = new ArrayList<>();
+        taskService.streamAllTasks(result::add);
 
         // Verify the result
-        assertNotNull(result);
         assertEquals(1, result.size());
-        assertEquals(testTask.getTitle(), result.get(0).getTitle());
-        assertEquals(testTask.getDescription(), result.get(0).getDescription());
-        assertEquals(testTask.getStatus(), result.get(0).getStatus());
-
-        // Verify that the repository method was called
-        verify(taskRepository, times(1)).findAll();
+        assertEquals(testTask.getTitle(), result.get(0).title());
+        assertEquals(testTask.getStatus(), result.get(0).status());
+        // the cursor is closed after the last row
+        assertTrue(closed.get());
+        verify(taskRepository, never()).findAll();
     }
 
     @Test
@@ -242,12 +256,66 @@ public class TaskServiceTest {
         when(taskRepository.findById(999L)).thenReturn(Optional.empty());
         Task newTask = new Task("Updated Title", "Updated Description", TaskStatus.COMPLETED);
         // Verify that the service throws an exception
-        assertThrows(RuntimeException.class, () -> taskService.updateTask(999L, new TaskDTO(newTask)));
+        assertThrows(NotFoundException.class, () -> taskService.updateTask(999L, new TaskDTO(newTask)));
 
         // Verify that the repository method was called
         verify(taskRepository, times(1)).findById(999L);
     }
 
+    @Test
+    public void testPatchTask_OnlyStatus() {
+        when(taskRepository.findById(testTask.getId())).thenReturn(Optional.of(testTask));
+        when(taskRepository.saveAndFlush(testTask)).thenReturn(testTask);
+        clearInvocations(testTask);
+
+        TaskDTO result = taskService.patchTask(testTask.getId(), new TaskPatch(null, null, TaskStatus.COMPLETED));
+
+        // only the status changes, the description (lazy) isn't read nor written
+        assertEquals("Test Title", result.getTitle());
+        assertNull(result.getDescription());
+        assertEquals(TaskStatus.COMPLETED, result.getStatus());
+        verify(testTask, never()).getDescription();
+        verify(testTask, never()).setDescription(any());
+        verify(taskRepository, times(1)).saveAndFlush(testTask);
+    }
+
+    @Test
+    public void testPatchTask_NoChanges() {
+        when(taskRepository.findById(testTask.getId())).thenReturn(Optional.of(testTask));
+
+        TaskDTO result = taskService.patchTask(testTask.getId(), new TaskPatch("Test Title", null, TaskStatus.PENDING));
+
+        // same values: nothing is written
+        assertEquals(TaskStatus.PENDING, result.getStatus());
+        verify(taskRepository, never()).saveAndFlush(any(Task.class));
+    }
+
+    @Test
+    public void testGetTasksByIds_ReportsMissing() {
+        TaskDTO taskDTO = new TaskDTO(testTask);
+        when(taskRepository.findDTOsByIdInAndUserId(List.of(1L, 2L), 1L)).thenReturn(List.of(taskDTO));
+
+        // the repeated id is queried once
+        TaskBatchDTO result = taskService.getTasksByIds(List.of(1L, 2L, 1L), 1L);
+
+        assertEquals(1, result.tasks().size());
+        assertEquals("Test Title", result.tasks().get(0).getTitle());
+        assertEquals(List.of(2L), result.missing());
+        verify(taskRepository, never()).findDTOsByIdIn(any());
+    }
+
+    @Test
+    public void testGetTasksByIds_Chunked() {
+        List<Long> ids = LongStream.rangeClosed(1, 1200).boxed().toList();
+        when(taskRepository.findDTOsByIdIn(any())).thenReturn(List.of());
+
+        TaskBatchDTO result = taskService.getTasksByIds(ids, null);
+
+        // 500 + 500 + 200
+        verify(taskRepository, times(3)).findDTOsByIdIn(any());
+        assertEquals(1200, result.missing().size());
+    }
+
     @Test
     public void testDeleteTask() {
         // Mock the repository to return the test task
@@ -292,4 +360,70 @@ public class TaskServiceTest {
         // Verify that the repository method was called
         verify(taskRepository, times(1)).findById(testTask.getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSyncTasks_UpdateWithBaseVersion() {
+        when(testTask.getVersion()).thenReturn(3L);
+        NewTask data = new NewTask("Synced Title", "Synced Description", TaskStatus.COMPLETED);
+
+        // The first operation was edited from an old version, the second from the current one
+        List<SyncOperationResult> results = taskService.syncTasks(testUser.getId(), List.of(
+                new SyncOperation(SyncOperationType.UPDATE, null, testTask.getId(), 2L, data),
+                new SyncOperation(SyncOperationType.UPDATE, null, testTask.getId(), 3L, data)));
+
+        assertEquals(SyncResultStatus.CONFLICT, results.get(0).status());
+        assertEquals(3L, results.get(0).version());
+        assertEquals("Test Title", results.get(0).task().getTitle()); // the current task of the server
+        assertEquals(SyncResultStatus.APPLIED, results.get(1).status());
+        assertEquals("Synced Title", testTask.getTitle());
+        verify(taskRepository, times(1)).saveAndFlush(testTask);
+    }
+
+    @Test
+    public void testSyncTasks_CreateReplayedIsAppliedOnce() {
+        // The task with this client id already exists (the client didn't get the response)
+        when(taskRepository.findByUserIdAndClientId(testUser.getId(), "client-1")).thenReturn(Optional.of(testTask));
+
+        List<SyncOperationResult> results = taskService.syncTasks(testUser.getId(), List.of(
+                new SyncOperation(SyncOperationType.CREATE, "client-1", null, null,
+                        new NewTask("Test Title", "Test Description", TaskStatus.PENDING))));
+
+        assertEquals(SyncResultStatus.APPLIED, results.get(0).status());
+        assertEquals(testTask.getId(), results.get(0).taskId());
+        verify(taskRepository, never()).save(any(Task.class));
+    }
+
+    @Test
+    public void testSyncTasks_ResultByOperation() {
+        // Task of another user
+        EntityUser otherUser = Mockito.spy(new EntityUser("Dario7", "12345678", "dario@gmail.com"));
+        when(otherUser.getId()).thenReturn(2L);
+        Task otherTask = Mockito.spy(new Task("Other Title", "Other Description", TaskStatus.PENDING));
+        when(otherTask.getId()).thenReturn(2L);
+        otherTask.setUser(otherUser);
+        when(taskRepository.findById(2L)).thenReturn(Optional.of(otherTask));
+        when(taskRepository.findById(999L)).thenReturn(Optional.empty());
+
+        List<SyncOperationResult> results = taskService.syncTasks(testUser.getId(), List.of(
+                new SyncOperation(SyncOperationType.CREATE, "client-2", null, null, new NewTask("", "Description", TaskStatus.PENDING)),
+                new SyncOperation(SyncOperationType.DELETE, null, 2L, null, null),
+                new SyncOperation(SyncOperationType.DELETE, null, 999L, null, null),
+                new SyncOperation(SyncOperationType.DELETE, null, testTask.getId(), null, null)));
+
+        assertEquals(SyncResultStatus.INVALID, results.get(0).status());
+        assertEquals("Title is required", results.get(0).message());
+        assertEquals(SyncResultStatus.FORBIDDEN, results.get(1).status());
+        assertEquals(SyncResultStatus.NOT_FOUND, results.get(2).status());
+        assertEquals(SyncResultStatus.APPLIED, results.get(3).status());
+        verify(taskRepository, never()).delete(otherTask);
+        verify(taskRepository, times(1)).delete(testTask);
+    }
+
+    @Test
+    public void testSyncTasks_TooManyOperations() {
+        List<SyncOperation> operations = Collections.nCopies(501,
+                new SyncOperation(SyncOperationType.DELETE, null, 999L, null, null));
+
+        assertThrows(IllegalArgumentException.class, () -> taskService.syncTasks(testUser.getId(), operations));
+    }
+}
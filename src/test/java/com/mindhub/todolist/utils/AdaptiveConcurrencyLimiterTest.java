@@ -0,0 +1,64 @@
+package com.mindhub.todolist.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+    private static final long FAST = 10_000_000L; // 10 ms
+
+    @Test
+    public void testRejectsOverTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(3, 1, 10);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.release(FAST);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testLimitGrowsWhileTheLatencyIsStable() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 50);
+        for (int i = 0; i < 20; i++) {
+            saturate(limiter, FAST);
+        }
+        assertTrue(limiter.getLimit() > 4);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testLimitShrinksWhenTheLatencyGoesUp() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 2, 50);
+        for (int i = 0; i < 5; i++) {
+            saturate(limiter, FAST);
+        }
+        int before = limiter.getLimit();
+        // a burst of slow requests (queued): the long-term average only moves a little
+        saturate(limiter, FAST * 10);
+        assertTrue(limiter.getLimit() < before);
+        assertTrue(limiter.getLimit() >= 2);
+    }
+
+    @Test
+    public void testLimitDoesNotChangeWithoutLoad() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 50);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(FAST);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    // all the slots in flight, then released with the same latency
+    private void saturate(AdaptiveConcurrencyLimiter limiter, long rtt) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(rtt);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.mindhub.todolist.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedLruMapTest {
+
+    @Test
+    public void testLeastRecentlyUsedAreEvictedByBytes() {
+        BoundedLruMap<String, String> map = new BoundedLruMap<>(10, String::length);
+        map.put("a", "1234");
+        map.put("b", "1234");
+        // read: "a" is now the most recently used
+        assertEquals("1234", map.get("a"));
+
+        map.put("c", "1234");
+        assertNull(map.get("b"));
+        assertEquals("1234", map.get("a"));
+        assertEquals("1234", map.get("c"));
+        assertEquals(8, map.getUsedBytes());
+    }
+
+    @Test
+    public void testReplaceAndRemoveUpdateTheBytes() {
+        BoundedLruMap<String, String> map = new BoundedLruMap<>(100, String::length);
+        map.put("a", "12");
+        assertEquals("12", map.put("a", "123456"));
+        assertEquals(6, map.getUsedBytes());
+
+        map.put("b", "123");
+        map.removeIf((key, value) -> key.equals("a"));
+        assertEquals(3, map.getUsedBytes());
+        assertEquals("123", map.remove("b"));
+        assertNull(map.remove("b"));
+        assertEquals(0, map.getUsedBytes());
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testEntryBiggerThanTheBoundIsNotKept() {
+        BoundedLruMap<String, String> map = new BoundedLruMap<>(4, String::length);
+        map.put("a", "12");
+        map.put("b", "12345");
+        assertEquals(0, map.size());
+        assertEquals(0, map.getUsedBytes());
+    }
+}
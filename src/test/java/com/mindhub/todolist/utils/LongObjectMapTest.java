@@ -0,0 +1,63 @@
+package com.mindhub.todolist.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongObjectMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertNull(map.put(1L, "one"));
+        assertNull(map.put(0L, "zero"));
+        assertEquals("one", map.put(1L, "uno"));
+        assertEquals(2, map.size());
+        assertEquals("uno", map.get(1L));
+        assertEquals("zero", map.get(0L));
+        assertNull(map.get(2L));
+
+        assertEquals("zero", map.remove(0L));
+        assertEquals("uno", map.remove(1L));
+        assertNull(map.remove(1L));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testSameContentAsHashMap() {
+        // consecutive ids (the usual keys), negative ones and removals in the middle of the runs
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(3) == 0 ? random.nextLong() % 1000 : random.nextInt(5000);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+        Map<Long, Long> iterated = new HashMap<>();
+        map.forEach(iterated::put);
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void testClear() {
+        LongObjectMap<String> map = new LongObjectMap<>(4);
+        for (long id = 0; id < 100; id++) {
+            map.put(id, "task " + id);
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(0L));
+        assertFalse(map.containsKey(50L));
+        assertTrue(map.values().isEmpty());
+    }
+}
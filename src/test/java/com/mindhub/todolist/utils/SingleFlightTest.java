@@ -0,0 +1,92 @@
+package com.mindhub.todolist.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> leader = executor.submit(() -> flight.execute("1:5", () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "tasks";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> follower = executor.submit(() -> flight.execute("1:5", () -> {
+                executions.incrementAndGet();
+                return "other";
+            }));
+            // the follower is waiting for the leader
+            Thread.sleep(100);
+            assertFalse(follower.isDone());
+            release.countDown();
+
+            assertEquals("tasks", leader.get(5, TimeUnit.SECONDS));
+            assertEquals("tasks", follower.get(5, TimeUnit.SECONDS));
+            assertEquals(1, executions.get());
+            assertEquals(0, flight.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCallAfterTheEndExecutesAgain() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        assertEquals(1, flight.execute("key", executions::incrementAndGet));
+        assertEquals(2, flight.execute("key", executions::incrementAndGet));
+    }
+
+    @Test
+    public void testExceptionIsSharedAndRemoved() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> flight.execute("key", () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("failed");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> follower = executor.submit(() -> flight.execute("key", () -> "other"));
+            Thread.sleep(100);
+            release.countDown();
+
+            Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, leaderError.getCause());
+            Exception followerError = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, followerError.getCause());
+            // the failure isn't kept
+            assertEquals("ok", flight.execute("key", () -> "ok"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}